@@ -20,3 +20,24 @@ dependencies {
         exclude(group = "org.junit", module = "junit")
     }
 }
+
+val fixtureBundleDir = layout.buildDirectory.dir("fixture-bundle")
+val testSourceSet = the<SourceSetContainer>()["test"]
+
+val compileFixtures by tasks.registering(JavaExec::class) {
+    description = "Validates the @Doc and @GridFsFile fixtures and compiles them into a binary bundle."
+    dependsOn("testClasses")
+    classpath = testSourceSet.runtimeClasspath
+    mainClass.set("com.wholegrainsoftware.springmongotest.FixtureBundleCompiler")
+    inputs.files(testSourceSet.output)
+    outputs.dir(fixtureBundleDir)
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(fixtureBundleDir.get().file("META-INF/spring-mongodb-test/fixtures.bundle").asFile.absolutePath) +
+                testSourceSet.output.classesDirs.map { it.absolutePath }
+    })
+}
+
+tasks.named<Test>("test") {
+    dependsOn(compileFixtures)
+    classpath += files(fixtureBundleDir)
+}
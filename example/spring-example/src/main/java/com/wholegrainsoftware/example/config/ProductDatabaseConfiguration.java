@@ -26,6 +26,7 @@ package com.wholegrainsoftware.example.config;
 
 import com.mongodb.client.MongoClient;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -40,15 +41,19 @@ import org.springframework.data.mongodb.repository.config.EnableMongoRepositorie
         mongoTemplateRef = "productDbTemplate"
 )
 public class ProductDatabaseConfiguration {
+    // tests with worker isolation seed product_db_worker<id> instead
+    @Value("product_db${spring-mongodb-test.isolation.suffix:}")
+    private String database;
+
     @Bean
     @Qualifier("productDbTemplate")
     public MongoTemplate productDbTemplate(MongoClient client) {
-        return new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, "product_db"));
+        return new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, database));
     }
 
     @Bean
     @Qualifier("productDbGridFsTemplate")
     public GridFsTemplate productGridFsTemplate(MongoClient client, MappingMongoConverter converter) {
-        return new GridFsTemplate(new SimpleMongoClientDatabaseFactory(client, "product_db"), converter);
+        return new GridFsTemplate(new SimpleMongoClientDatabaseFactory(client, database), converter);
     }
 }
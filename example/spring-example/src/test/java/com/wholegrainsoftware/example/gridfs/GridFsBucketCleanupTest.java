@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.example.gridfs;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.wholegrainsoftware.example.MongoDbTest;
+import com.wholegrainsoftware.springmongotest.GridFsFile;
+import com.wholegrainsoftware.springmongotest.MongoDBTest;
+import org.bson.Document;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class GridFsBucketCleanupTest extends MongoDbTest {
+    private static final String BUCKET = "images";
+
+    @Autowired
+    private MongoClient client;
+
+    @Test
+    @Order(1)
+    @MongoDBTest
+    @GridFsFile(id = "60327c7f9189342c201e0e21", filePath = "/files/test.png", bucket = BUCKET)
+    public void fileIsUploadedToCustomBucket() {
+        assertThat(db().getCollection(BUCKET + ".files").countDocuments()).isEqualTo(1);
+        assertThat(db().getCollection(BUCKET + ".chunks").countDocuments()).isPositive();
+    }
+
+    @Test
+    @Order(2)
+    @MongoDBTest
+    public void customBucketIsCleanedAndKeepsItsIndexes() {
+        assertThat(db().getCollection(BUCKET + ".files").countDocuments()).isZero();
+        assertThat(db().getCollection(BUCKET + ".chunks").countDocuments()).isZero();
+
+        List<String> indexes = new ArrayList<>();
+        for (Document index : db().getCollection(BUCKET + ".chunks").listIndexes()) {
+            indexes.add(index.getString("name"));
+        }
+        assertThat(indexes).contains("files_id_1_n_1");
+    }
+
+    private MongoDatabase db() {
+        return client.getDatabase("default_db");
+    }
+}
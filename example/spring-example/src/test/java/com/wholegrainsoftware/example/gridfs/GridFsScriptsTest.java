@@ -24,6 +24,9 @@
 
 package com.wholegrainsoftware.example.gridfs;
 
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import com.wholegrainsoftware.example.MongoDbTest;
 import com.wholegrainsoftware.example.util.InsertTestPdf;
@@ -35,6 +38,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
@@ -45,6 +52,9 @@ public class GridFsScriptsTest extends MongoDbTest {
     private static final String CREATED_BY_ID = "60327cc5dbc0a320d7544ae3";
     private static final ObjectId CREATED_BY_OID = new ObjectId(CREATED_BY_ID);
 
+    @Autowired
+    private MongoClient client;
+
     @Autowired
     private GridFsTemplate gridFs;
 
@@ -83,4 +93,18 @@ public class GridFsScriptsTest extends MongoDbTest {
         assertThat(file.getFilename()).isEqualTo("test.png");
         assertThat(file.getLength()).isEqualTo(3850L);
     }
+
+    @Test
+    @MongoDBTest
+    @InsertTestPdf
+    public void fileInsertedInBulkCanBeDownloaded() throws IOException {
+        byte[] expected;
+        try (InputStream stream = getClass().getResourceAsStream("/files/test.pdf")) {
+            expected = StreamUtils.copyToByteArray(stream);
+        }
+
+        try (GridFSDownloadStream download = GridFSBuckets.create(client.getDatabase("default_db")).openDownloadStream(FILE_OID)) {
+            assertThat(StreamUtils.copyToByteArray(download)).isEqualTo(expected);
+        }
+    }
 }
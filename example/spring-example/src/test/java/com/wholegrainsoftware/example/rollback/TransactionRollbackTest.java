@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.example.rollback;
+
+import com.mongodb.client.MongoClient;
+import com.wholegrainsoftware.example.MongoDbTest;
+import com.wholegrainsoftware.example.person.Person;
+import com.wholegrainsoftware.example.person.PersonRepository;
+import com.wholegrainsoftware.example.util.InsertPeople;
+import com.wholegrainsoftware.springmongotest.MongoDBTest;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@InsertPeople
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestPropertySource(properties = "spring-mongodb-test.cleanup.strategy=rollback")
+public class TransactionRollbackTest extends MongoDbTest {
+    private static final String LEFTOVER = "leftover";
+
+    @Autowired
+    private MongoClient client;
+    @Autowired
+    private PersonRepository personRepo;
+
+    @Test
+    @Order(1)
+    @MongoDBTest
+    public void firstTestSweepsDocumentsWrittenBefore() {
+        assertThat(client.getDatabase("default_db").getCollection(LEFTOVER).countDocuments()).isZero();
+
+        personRepo.save(new Person(new ObjectId(), "Joan", "Doe"));
+
+        assertThat(personRepo.count()).isEqualTo(3);
+    }
+
+    @Test
+    @Order(2)
+    @MongoDBTest
+    public void seedingAndWritesOfThePreviousTestAreRolledBack() {
+        assertThat(personRepo.count()).isEqualTo(2);
+    }
+
+    @TestConfiguration
+    static class LeftoverConfiguration {
+        @Bean
+        public CommandLineRunner leaveDocument(MongoClient client) {
+            return (args) -> client.getDatabase("default_db").getCollection(LEFTOVER).insertOne(new Document("name", "Jimi"));
+        }
+    }
+}
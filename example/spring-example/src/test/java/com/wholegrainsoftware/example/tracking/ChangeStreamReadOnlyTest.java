@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.example.tracking;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.wholegrainsoftware.example.MongoDbTest;
+import com.wholegrainsoftware.example.person.PersonRepository;
+import com.wholegrainsoftware.example.util.InsertPeople;
+import com.wholegrainsoftware.springmongotest.MongoDBTest;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@InsertPeople
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestPropertySource(properties = "spring-mongodb-test.tracking.change-streams=true")
+public class ChangeStreamReadOnlyTest extends MongoDbTest {
+    private static long writesAfterFirstTest;
+
+    @Autowired
+    private WriteCounter writes;
+    @Autowired
+    private PersonRepository personRepo;
+
+    @Test
+    @Order(1)
+    @MongoDBTest
+    public void firstTestCleansAndSeeds() {
+        assertThat(personRepo.count()).isEqualTo(2);
+        writesAfterFirstTest = writes.count();
+    }
+
+    @Test
+    @Order(2)
+    @MongoDBTest
+    public void readOnlyTestCausesNoCleanupOrSeeding() {
+        assertThat(writes.count()).isEqualTo(writesAfterFirstTest);
+        assertThat(personRepo.count()).isEqualTo(2);
+    }
+
+    @TestConfiguration
+    static class CountingConfiguration {
+        @Bean
+        public WriteCounter writeCounter() {
+            return new WriteCounter();
+        }
+
+        @Bean
+        public MongoClientSettingsBuilderCustomizer countWrites(WriteCounter writes) {
+            return (settings) -> settings.addCommandListener(writes);
+        }
+    }
+
+    static class WriteCounter implements CommandListener {
+        private static final List<String> WRITES = Arrays.asList("insert", "update", "delete", "drop");
+        // the tracker inserts a sentinel document to await its change stream
+        private static final String SENTINEL_DATABASE = "spring_mongodb_test_sentinel";
+
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if (WRITES.contains(event.getCommandName()) && !SENTINEL_DATABASE.equals(event.getDatabaseName())) {
+                count.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+        }
+
+        long count() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.example.tracking;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.wholegrainsoftware.example.MongoDbTest;
+import com.wholegrainsoftware.example.util.InsertPeople;
+import com.wholegrainsoftware.springmongotest.MongoDBTest;
+import org.bson.Document;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@InsertPeople
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestPropertySource(properties = {
+        "spring-mongodb-test.tracking.change-streams=true",
+        "spring-mongodb-test.isolation.enabled=true",
+        "spring-mongodb-test.isolation.worker-id=1"
+})
+public class ChangeStreamTrackingTest extends MongoDbTest {
+    private static final String OTHER_WORKER_DB = "default_db_worker2";
+
+    @Autowired
+    private MongoClient client;
+
+    @Test
+    @Order(1)
+    @MongoDBTest
+    public void writesOfOtherWorkersAreRecordedByTheStream() {
+        otherWorkerPeople().insertOne(new Document("name", "Joan"));
+    }
+
+    @Test
+    @Order(2)
+    @MongoDBTest
+    public void collectionsOfOtherWorkersAreNotCleaned() {
+        try {
+            assertThat(otherWorkerPeople().countDocuments()).isEqualTo(1);
+        } finally {
+            client.getDatabase(OTHER_WORKER_DB).drop();
+        }
+    }
+
+    private MongoCollection<Document> otherWorkerPeople() {
+        return client.getDatabase(OTHER_WORKER_DB).getCollection("person");
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.example.tracking;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.wholegrainsoftware.example.MongoDbTest;
+import com.wholegrainsoftware.springmongotest.MongoDBTest;
+import com.wholegrainsoftware.springmongotest.NamespaceTracker;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class NamespaceTrackerTest extends MongoDbTest {
+    private static long deletesAfterFirstTest;
+
+    @Autowired
+    private DeleteCounter deletes;
+
+    @Test
+    @Order(1)
+    @MongoDBTest
+    public void firstTestSweepsAllCollections() {
+        deletesAfterFirstTest = deletes.count();
+    }
+
+    @Test
+    @Order(2)
+    @MongoDBTest
+    public void readOnlyTestCausesNoCleanup() {
+        assertThat(deletes.count()).isEqualTo(deletesAfterFirstTest);
+    }
+
+    @TestConfiguration
+    static class TrackingConfiguration {
+        @Bean
+        public NamespaceTracker namespaceTracker() {
+            return new NamespaceTracker();
+        }
+
+        @Bean
+        public DeleteCounter deleteCounter() {
+            return new DeleteCounter();
+        }
+
+        @Bean
+        public MongoClientSettingsBuilderCustomizer trackNamespaces(NamespaceTracker tracker, DeleteCounter deletes) {
+            return (settings) -> settings.addCommandListener(tracker).addCommandListener(deletes);
+        }
+    }
+
+    static class DeleteCounter implements CommandListener {
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if ("delete".equals(event.getCommandName())) count.incrementAndGet();
+        }
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+        }
+
+        long count() {
+            return count.get();
+        }
+    }
+}
@@ -2,12 +2,14 @@ plugins {
     signing
     `java-library`
     `maven-publish`
+    id("me.champeau.gradle.jmh") version "0.5.3"
 }
 
 version = "1.2.0"
 
 val springVersion by extra("5.3.4")
 val mongoClientVersion by extra("4.1.1")
+val springDataMongoDBVersion by extra("3.1.5")
 val isReleaseVersion by extra(!version.toString().endsWith("SNAPSHOT"))
 
 dependencies {
@@ -17,6 +19,8 @@ dependencies {
     compileOnly("org.mongodb:bson:${mongoClientVersion}")
     compileOnly("org.mongodb:mongodb-driver-core:${mongoClientVersion}")
     compileOnly("org.mongodb:mongodb-driver-sync:${mongoClientVersion}")
+    compileOnly("org.mongodb:mongodb-driver-reactivestreams:${mongoClientVersion}")
+    compileOnly("org.springframework.data:spring-data-mongodb:${springDataMongoDBVersion}")
 
     testImplementation("org.mockito:mockito-all:1.10.19")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.3.1")
@@ -27,6 +31,19 @@ configurations {
     testImplementation {
         extendsFrom(compileOnly.get())
     }
+
+    jmh {
+        extendsFrom(compileOnly.get())
+    }
+}
+
+jmh {
+    jmhVersion = "1.32"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    profilers = listOf("gc")
+    resultFormat = "JSON"
 }
 
 java {
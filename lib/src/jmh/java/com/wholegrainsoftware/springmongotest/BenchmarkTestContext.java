@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.AttributeAccessorSupport;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestContext;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * A {@link TestContext} backed by a plain application context that only contains the given {@link MongoClient}.
+ */
+class BenchmarkTestContext extends AttributeAccessorSupport implements TestContext {
+    private final GenericApplicationContext applicationContext = new GenericApplicationContext();
+    private final Method testMethod;
+
+    BenchmarkTestContext(MongoClient client) {
+        applicationContext.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Collections.singletonMap(AnnotationHandlerHelper.MONGODB_DATABASE, "benchmark")));
+        applicationContext.registerBean(MongoClient.class, () -> client);
+        applicationContext.refresh();
+        try {
+            testMethod = BenchmarkTestContext.class.getDeclaredMethod("toString");
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    @Override
+    public Class<?> getTestClass() {
+        return BenchmarkTestContext.class;
+    }
+
+    @Override
+    public Object getTestInstance() {
+        return this;
+    }
+
+    @Override
+    public Method getTestMethod() {
+        return testMethod;
+    }
+
+    @Override
+    public Throwable getTestException() {
+        return null;
+    }
+
+    @Override
+    public void markApplicationContextDirty(DirtiesContext.HierarchyMode hierarchyMode) {
+    }
+
+    @Override
+    public void updateState(Object testInstance, Method testMethod, Throwable testException) {
+    }
+
+    @Override
+    public String toString() {
+        return "BenchmarkTestContext";
+    }
+}
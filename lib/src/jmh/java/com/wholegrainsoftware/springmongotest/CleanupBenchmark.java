@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cleanup loops of the document and GridFS handlers against an in-process {@link StandInMongo}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CleanupBenchmark {
+    @Param({"1", "10"})
+    public int databases;
+
+    @Param({"5", "40"})
+    public int collections;
+
+    private final MongoDBAnnotationHandler mongoDB = new MongoDBAnnotationHandler();
+    private final GridFsAnnotationHandler gridFs = new GridFsAnnotationHandler();
+    private BenchmarkTestContext context;
+
+    @Setup
+    public void setup() {
+        context = new BenchmarkTestContext(StandInMongo.client(databases, collections));
+    }
+
+    @Benchmark
+    public void cleanDocuments() {
+        mongoDB.cleanup(context, CleanupScope.exhaustive());
+    }
+
+    @Benchmark
+    public void cleanGridFs() {
+        gridFs.cleanup(context, CleanupScope.exhaustive());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class Fixtures {
+    private static final String ID = "60952354ec7d311fac6169c1";
+
+    static String json(int fields) {
+        StringBuilder json = new StringBuilder("{ _id: ObjectId('" + ID + "')");
+        for (int i = 0; i < fields; i++) {
+            json.append(", field").append(i).append(": 'value ").append(i).append("'");
+        }
+        return json.append(" }").toString();
+    }
+
+    static Path jsonFile(int fields) {
+        return write(json(fields).getBytes(UTF_8), ".json");
+    }
+
+    static Path binaryFile(int bytes) {
+        byte[] content = new byte[bytes];
+        new Random(42).nextBytes(content);
+        return write(content, ".bin");
+    }
+
+    static Doc doc(String collection, Path... files) {
+        String[] paths = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            paths[i] = files[i].toUri().toString();
+        }
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("db", "");
+        attributes.put("collection", collection);
+        attributes.put("files", paths);
+        return AnnotationUtils.synthesizeAnnotation(attributes, Doc.class, null);
+    }
+
+    static GridFsFile gridFsFile(Path file) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("db", "");
+        attributes.put("id", ID);
+        attributes.put("filePath", file.toUri().toString());
+        attributes.put("metadata", "{}");
+        return AnnotationUtils.synthesizeAnnotation(attributes, GridFsFile.class, null);
+    }
+
+    private static Path write(byte[] content, String suffix) {
+        try {
+            Path file = Files.createTempFile("fixture", suffix);
+            file.toFile().deleteOnExit();
+            return Files.write(file, content);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
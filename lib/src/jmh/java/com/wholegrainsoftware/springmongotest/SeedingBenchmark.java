@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code runScript} of the document and GridFS handlers against an in-process {@link StandInMongo}.
+ * Since the stand-in discards every write and the chunks of a file are cached after the first upload,
+ * {@link #uploadFile()} measures building the chunk documents from the cache, while {@link #readChunks()}
+ * measures reading and chunking a file of {@link #fileSize} bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SeedingBenchmark {
+    @Param({"10", "1000"})
+    public int fields;
+
+    @Param({"1024", "1048576"})
+    public int fileSize;
+
+    private final MongoDBAnnotationHandler mongoDB = new MongoDBAnnotationHandler();
+    private final GridFsAnnotationHandler gridFs = new GridFsAnnotationHandler();
+    private BenchmarkTestContext context;
+    private Doc doc;
+    private GridFsFile file;
+    private Resource binaryFile;
+
+    @Setup
+    public void setup() {
+        context = new BenchmarkTestContext(StandInMongo.client(1, 1));
+        Path fixture = Fixtures.jsonFile(fields);
+        doc = Fixtures.doc("person", fixture, fixture, fixture);
+        Path binary = Fixtures.binaryFile(fileSize);
+        file = Fixtures.gridFsFile(binary);
+        binaryFile = new FileSystemResource(binary);
+    }
+
+    @Benchmark
+    public void insertDocuments() {
+        mongoDB.runScript(context, doc);
+    }
+
+    @Benchmark
+    public void uploadFile() {
+        gridFs.runScript(context, file);
+    }
+
+    @Benchmark
+    public List<RawBsonDocument> readChunks() {
+        return GridFsAnnotationHandler.readChunks(binaryFile, fileSize, AnnotationHandlerHelper.DEFAULT_GRIDFS_CHUNK_SIZE);
+    }
+}
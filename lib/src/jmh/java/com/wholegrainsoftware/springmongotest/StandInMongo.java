@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.result.DeleteResult;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MongoClient} stand-in that answers every driver call in-process, so that the listener's hot path
+ * can be benchmarked without a server. Inserted documents are encoded to BSON, like the driver would do
+ * before sending them over the wire.
+ */
+class StandInMongo implements InvocationHandler {
+    private static final CodecRegistry CODECS = MongoClientSettings.getDefaultCodecRegistry();
+    private static final String NAME = "benchmark";
+
+    private final List<String> databaseNames;
+    private final List<String> collectionNames;
+    private final AtomicLong writtenBytes;
+    private final List<?> values;
+    private final Iterator<?> cursor;
+
+    private StandInMongo(List<String> databaseNames, List<String> collectionNames, AtomicLong writtenBytes, List<?> values) {
+        this.databaseNames = databaseNames;
+        this.collectionNames = collectionNames;
+        this.writtenBytes = writtenBytes;
+        this.values = values;
+        this.cursor = values.iterator();
+    }
+
+    static MongoClient client(int databases, int collections) {
+        List<String> databaseNames = names("db", databases);
+        List<String> collectionNames = names("collection", collections);
+        StandInMongo handler = new StandInMongo(databaseNames, collectionNames, new AtomicLong(), Collections.emptyList());
+        return handler.proxy(MongoClient.class);
+    }
+
+    private static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        return names;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Class<?> type = method.getReturnType();
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "StandInMongo";
+            case "listDatabaseNames":
+                return iterable(type, databaseNames);
+            case "listCollectionNames":
+                return iterable(type, collectionNames);
+            case "iterator":
+            case "cursor":
+                return iterable(type, values);
+            case "spliterator":
+                return values.spliterator();
+            case "hasNext":
+                return cursor.hasNext();
+            case "next":
+                return cursor.next();
+            case "tryNext":
+                return cursor.hasNext() ? cursor.next() : null;
+            case "first":
+                return values.isEmpty() ? null : values.get(0);
+            case "into":
+                return args[0];
+            case "insertOne":
+                encode(args[args.length - 1]);
+                return null;
+            case "insertMany":
+                for (Object document : (Collection<?>) args[args.length - 1]) {
+                    encode(document);
+                }
+                return null;
+            case "runCommand":
+                return new Document();
+            case "deleteMany":
+                return DeleteResult.acknowledged(0);
+            case "getName":
+            case "getDatabaseName":
+            case "getBucketName":
+                return NAME;
+            case "getNamespace":
+                return new MongoNamespace(NAME, NAME);
+            case "getCodecRegistry":
+                return CODECS;
+            case "getWriteConcern":
+                return WriteConcern.ACKNOWLEDGED;
+            case "getReadConcern":
+                return ReadConcern.DEFAULT;
+            case "getReadPreference":
+                return ReadPreference.primary();
+            default:
+                return defaultValue(type);
+        }
+    }
+
+    private Object iterable(Class<?> type, List<?> values) {
+        if (type == Iterator.class) return values.iterator();
+        return new StandInMongo(databaseNames, collectionNames, writtenBytes, values).proxy(type);
+    }
+
+    private Object defaultValue(Class<?> type) {
+        if (type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == long.class) return 0L;
+        if (type == int.class) return 0;
+        if (type == double.class) return 0d;
+        if (type.isInterface()) return new StandInMongo(databaseNames, collectionNames, writtenBytes, Collections.emptyList()).proxy(type);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void encode(Object document) {
+        Codec<Object> codec;
+        try {
+            codec = (Codec<Object>) CODECS.get(document.getClass());
+        } catch (CodecConfigurationException ex) {
+            return;
+        }
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        writtenBytes.addAndGet(buffer.getPosition());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, this);
+    }
+}
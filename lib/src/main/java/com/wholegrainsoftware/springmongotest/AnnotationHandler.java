@@ -27,10 +27,15 @@ package com.wholegrainsoftware.springmongotest;
 import org.springframework.test.context.TestContext;
 
 import java.lang.annotation.Annotation;
+import java.util.List;
 
 interface AnnotationHandler<T extends Annotation> {
 
     void runScript(TestContext context, T annotation);
 
-    void cleanup(TestContext context);
+    default void runScripts(TestContext context, List<T> annotations) {
+        annotations.forEach((annotation) -> runScript(context, annotation));
+    }
+
+    void cleanup(TestContext context, CleanupScope scope);
 }
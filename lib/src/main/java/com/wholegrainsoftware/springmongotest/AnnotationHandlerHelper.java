@@ -25,10 +25,13 @@
 package com.wholegrainsoftware.springmongotest;
 
 import com.mongodb.ConnectionString;
+import com.mongodb.MongoNamespace;
 import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.TestContext;
+import org.springframework.test.context.util.TestContextResourceUtils;
 import org.springframework.util.FileCopyUtils;
 
 import java.io.IOException;
@@ -46,15 +49,65 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 class AnnotationHandlerHelper {
     static final String MONGODB_URI = "spring.data.mongodb.uri";
     static final String MONGODB_DATABASE = "spring.data.mongodb.database";
+    static final String FIXTURE_CACHE_MAX_BYTES = "spring-mongodb-test.fixture-cache.max-bytes";
+    static final String SKIP_UNCHANGED_RESEED = "spring-mongodb-test.reseed.skip-unchanged";
+    static final String INCREMENTAL_RESEED = "spring-mongodb-test.reseed.incremental";
+    static final String CLEANUP_MODE = "spring-mongodb-test.cleanup.mode";
+    static final String EXHAUSTIVE_CLEANUP = "exhaustive";
+    static final String CLEANUP_PARALLELISM = "spring-mongodb-test.cleanup.parallelism";
+    static final String SEEDING_PARALLELISM = "spring-mongodb-test.seeding.parallelism";
+    static final String VIRTUAL_THREADS = "spring-mongodb-test.virtual-threads.enabled";
+    static final String SEEDING_TEMPLATES = "spring-mongodb-test.seeding.templates";
+    static final String CHANGE_STREAM_TRACKING = "spring-mongodb-test.tracking.change-streams";
+    static final String GRIDFS_CHUNK_SIZE = "spring-mongodb-test.gridfs.chunk-size";
+    static final int DEFAULT_GRIDFS_CHUNK_SIZE = 255 * 1024;
+    static final String CLEANUP_ASYNC = "spring-mongodb-test.cleanup.async";
+    static final String CLEANUP_STRATEGY = "spring-mongodb-test.cleanup.strategy";
+    static final String CLEANUP_DROP_THRESHOLD = "spring-mongodb-test.cleanup.drop-threshold";
+    static final long DEFAULT_DROP_THRESHOLD = 1000;
+    static final String ISOLATION_ENABLED = "spring-mongodb-test.isolation.enabled";
+    static final String ISOLATION_WORKER_ID = "spring-mongodb-test.isolation.worker-id";
+    static final String ISOLATION_SUFFIX = "spring-mongodb-test.isolation.suffix";
+    static final String GRADLE_WORKER = "org.gradle.test.worker";
+    private static final int DEFAULT_MAX_POOL_SIZE = 100;
     private static final List<String> EXCLUDED_DB_NAMES = Arrays.asList("config", "admin", "local");
 
     public static String getDatabaseName(TestContext context) {
-        Environment env = context.getApplicationContext().getEnvironment();
+        String database = getDatabaseName(context.getApplicationContext().getEnvironment());
+        if (database == null) throw unspecifiedDatabase();
+        return database;
+    }
+
+    public static String getDatabaseName(Environment env) {
         String database = env.getProperty(MONGODB_DATABASE);
         if (database != null) return database;
         String uri = env.getProperty(MONGODB_URI);
-        if (uri != null) return new ConnectionString(uri).getDatabase();
-        throw unspecifiedDatabase();
+        return uri == null ? null : new ConnectionString(uri).getDatabase();
+    }
+
+    public static String resolveDatabaseName(TestContext context, String databaseName) {
+        FixturePlan plan = FixturePlan.current(context);
+        if (plan != null) return plan.databaseName(databaseName);
+        if (databaseName.isEmpty()) {
+            DatabasePool pool = getDatabasePool(context);
+            return pool == null ? getDatabaseName(context) : pool.getDatabaseName();
+        }
+        return withSuffix(databaseName, getIsolationSuffix(context));
+    }
+
+    public static String withSuffix(String databaseName, String suffix) {
+        return suffix.isEmpty() || databaseName.endsWith(suffix) ? databaseName : databaseName + suffix;
+    }
+
+    public static List<Resource> resolveResources(TestContext context, String... paths) {
+        try (Trace ignored = Trace.start(context, "resolve resources")) {
+            String[] fileNames = TestContextResourceUtils.convertToClasspathResourcePaths(context.getTestClass(), paths);
+            return TestContextResourceUtils.convertToResourceList(context.getApplicationContext(), fileNames);
+        }
+    }
+
+    public static String getIsolationSuffix(TestContext context) {
+        return getProperty(context, ISOLATION_SUFFIX, String.class, "");
     }
 
     public static String asString(Resource resource) {
@@ -65,6 +118,19 @@ class AnnotationHandlerHelper {
         }
     }
 
+    public static <T> T getProperty(TestContext context, String key, Class<T> type, T defaultValue) {
+        Environment env = context.getApplicationContext().getEnvironment();
+        return env.getProperty(key, type, defaultValue);
+    }
+
+    public static String cacheKey(Resource resource) {
+        try {
+            return resource.getURL().toExternalForm() + "@" + resource.lastModified();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
     public static InputStream getStream(Resource resource) {
         try {
             return resource.getInputStream();
@@ -73,17 +139,110 @@ class AnnotationHandlerHelper {
         }
     }
 
+    public static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
     public static String getName(Resource resource) {
         String name = resource.getFilename();
         if (name == null) throw fileNameShouldNotBeNull();
         return name;
     }
 
+    public static MongoClient getClient(TestContext context) {
+        FixturePlan plan = FixturePlan.current(context);
+        return plan != null ? plan.client() : context.getApplicationContext().getBean(MongoClient.class);
+    }
+
+    public static MongoDatabase getDatabase(TestContext context, String dbName) {
+        if (isTransactional(context)) return TransactionIsolation.database(context, dbName);
+        return getClient(context).getDatabase(dbName);
+    }
+
+    public static boolean isTransactional(TestContext context) {
+        return context.hasAttribute(TransactionIsolation.ATTRIBUTE);
+    }
+
+    public static com.mongodb.reactivestreams.client.MongoClient getReactiveClient(TestContext context) {
+        FixturePlan plan = FixturePlan.current(context);
+        return plan != null ? plan.reactiveClient()
+                : context.getApplicationContext().getBean(com.mongodb.reactivestreams.client.MongoClient.class);
+    }
+
     public static List<String> determineDatabaseNames(TestContext context) {
-        MongoClient client = context.getApplicationContext().getBean(MongoClient.class);
+        MongoClient client = getClient(context);
         return StreamSupport
                 .stream(client.listDatabaseNames().spliterator(), false)
-                .filter(dbName -> !EXCLUDED_DB_NAMES.contains(dbName))
+                .filter(dbName -> isCleanableDatabase(context, dbName))
                 .collect(Collectors.toList());
     }
+
+    public static boolean isCleanableDatabase(TestContext context, String dbName) {
+        DatabasePool pool = getDatabasePool(context);
+        return !isExcludedDatabase(dbName) && (pool == null || !pool.contains(dbName)) && dbName.endsWith(getIsolationSuffix(context));
+    }
+
+    public static int getConnectionPoolSize(TestContext context) {
+        String uri = context.getApplicationContext().getEnvironment().getProperty(MONGODB_URI);
+        Integer size = uri == null ? null : new ConnectionString(uri).getMaxConnectionPoolSize();
+        return size == null || size <= 0 ? DEFAULT_MAX_POOL_SIZE : size;
+    }
+
+    public static ParallelExecution cleanupExecution(TestContext context) {
+        return parallelExecution(context, CLEANUP_PARALLELISM);
+    }
+
+    public static ParallelExecution seedingExecution(TestContext context) {
+        // the session of a transaction is bound to the test thread and must not be used concurrently
+        if (isTransactional(context)) return new ParallelExecution(1);
+        return parallelExecution(context, SEEDING_PARALLELISM);
+    }
+
+    public static int seedingParallelism(TestContext context) {
+        return parallelism(context, SEEDING_PARALLELISM);
+    }
+
+    private static ParallelExecution parallelExecution(TestContext context, String property) {
+        if (getProperty(context, VIRTUAL_THREADS, Boolean.class, false)) {
+            ParallelExecution virtualThreads = ParallelExecution.virtualThreads(parallelism(context, property));
+            if (virtualThreads != null) return virtualThreads;
+        }
+        return new ParallelExecution(parallelism(context, property));
+    }
+
+    private static int parallelism(TestContext context, String property) {
+        int parallelism = getProperty(context, property, Integer.class, Runtime.getRuntime().availableProcessors());
+        return Math.max(1, Math.min(parallelism, getConnectionPoolSize(context)));
+    }
+
+    public static CleanupStrategy getCleanupStrategy(TestContext context) {
+        String strategy = getProperty(context, CLEANUP_STRATEGY, String.class, CleanupStrategy.DELETE.name());
+        return CleanupStrategy.parse(strategy);
+    }
+
+    public static boolean isExcludedDatabase(String dbName) {
+        return EXCLUDED_DB_NAMES.contains(dbName) || FixtureTemplates.isTemplateDatabase(dbName)
+                || ChangeStreamTracker.isSentinelDatabase(dbName);
+    }
+
+    public static NamespaceTracker getTracker(TestContext context) {
+        FixturePlan plan = FixturePlan.current(context);
+        if (plan != null) return plan.tracker();
+        return context.getApplicationContext().getBeanProvider(NamespaceTracker.class).getIfAvailable();
+    }
+
+    public static DatabasePool getDatabasePool(TestContext context) {
+        FixturePlan plan = FixturePlan.current(context);
+        if (plan != null) return plan.pool();
+        return context.getApplicationContext().getBeanProvider(DatabasePool.class).getIfAvailable();
+    }
+
+    public static void recordSeeded(TestContext context, String dbName, String collection) {
+        NamespaceTracker tracker = getTracker(context);
+        if (tracker != null) tracker.record(new MongoNamespace(dbName, collection));
+    }
 }
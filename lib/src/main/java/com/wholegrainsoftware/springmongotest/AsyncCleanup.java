@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.springframework.context.ApplicationContext;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+class AsyncCleanup {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "spring-mongodb-test-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static Future<?> pending;
+    private static ApplicationContext cleaned;
+
+    private AsyncCleanup() {
+    }
+
+    static synchronized void submit(ApplicationContext context, Runnable cleanup) {
+        await();
+        cleaned = context;
+        pending = EXECUTOR.submit(cleanup);
+    }
+
+    static synchronized void await() {
+        Future<?> future = pending;
+        if (future == null) return;
+        pending = null;
+        try {
+            future.get();
+        } catch (ExecutionException ex) {
+            cleaned = null;
+            throw failedAsyncCleanup(ex.getCause());
+        } catch (InterruptedException ex) {
+            cleaned = null;
+            Thread.currentThread().interrupt();
+            throw interrupted(ex);
+        }
+    }
+
+    static synchronized boolean consume(ApplicationContext context) {
+        boolean clean = cleaned == context;
+        cleaned = null;
+        return clean;
+    }
+}
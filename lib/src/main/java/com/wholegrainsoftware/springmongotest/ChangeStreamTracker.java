@@ -0,0 +1,322 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.wholegrainsoftware.springmongotest.ParallelExecution.Task;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.TestContext;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * Records the namespaces written through a cluster-wide change stream. To make sure that every write up to
+ * a certain point has been seen, a sentinel document is inserted and awaited on the stream, since events
+ * are delivered in the order of the oplog.
+ *
+ * <p>Besides the written namespaces, the tracker remembers which fixtures every seeded collection
+ * currently contains, so that untouched collections can be kept for the next test. With
+ * {@code spring-mongodb-test.reseed.incremental}, it also remembers the hashes of their documents, so that
+ * untouched collections with other fixtures only receive the changed documents.</p>
+ */
+class ChangeStreamTracker {
+    static final String SENTINEL_DATABASE = "spring_mongodb_test_sentinel";
+    private static final String SENTINEL_COLLECTION = "sentinel";
+    private static final long SYNC_TIMEOUT_SECONDS = 30;
+    private static final Map<MongoClient, ChangeStreamTracker> TRACKERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final MongoCollection<Document> sentinel;
+    private final Set<MongoNamespace> touched = new LinkedHashSet<>();
+    private final Map<MongoNamespace, String> seeded = new HashMap<>();
+    private final Map<MongoNamespace, Map<BsonValue, String>> contents = new HashMap<>();
+    private boolean sweepRequired = true;
+    private boolean seeding;
+    private boolean failed;
+    private ObjectId pendingToken;
+    private CountDownLatch pendingSeen;
+
+    private ChangeStreamTracker(MongoClient client, String suffix) {
+        this.sentinel = client.getDatabase(SENTINEL_DATABASE + suffix).getCollection(SENTINEL_COLLECTION);
+    }
+
+    static boolean isEnabled(TestContext context) {
+        return getProperty(context, CHANGE_STREAM_TRACKING, Boolean.class, false);
+    }
+
+    static boolean isSentinelDatabase(String dbName) {
+        return dbName.startsWith(SENTINEL_DATABASE);
+    }
+
+    static ChangeStreamTracker of(TestContext context) {
+        MongoClient client = getClient(context);
+        return TRACKERS.computeIfAbsent(client, (c) -> new ChangeStreamTracker(c, getIsolationSuffix(context)).start(c));
+    }
+
+    /**
+     * Waits until every write that happened before has been delivered and returns the namespaces written
+     * since the last {@link #seeded()}.
+     */
+    Set<MongoNamespace> sync() {
+        ObjectId token = new ObjectId();
+        CountDownLatch seen = new CountDownLatch(1);
+        synchronized (this) {
+            if (failed) return Collections.emptySet();
+            pendingToken = token;
+            pendingSeen = seen;
+        }
+        sentinel.insertOne(new Document("_id", token));
+        try {
+            if (!seen.await(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS)) markSweepRequired();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw interrupted(ex);
+        } finally {
+            sentinel.deleteOne(Filters.eq("_id", token));
+        }
+        synchronized (this) {
+            return new LinkedHashSet<>(touched);
+        }
+    }
+
+    /**
+     * Like {@link #sync()}, but only returns the namespaces the listener may clean. The stream watches the
+     * whole deployment, so it also sees the writes of other workers and of databases that no test owns.
+     */
+    Set<MongoNamespace> touched(TestContext context) {
+        return cleanable(context, sync());
+    }
+
+    /**
+     * Marks the end of the seeding. Its writes are expected, only the writes of the test make a collection
+     * dirty. If the seeding fails before, the next test sweeps all collections.
+     */
+    void seeded() {
+        sync();
+        synchronized (this) {
+            touched.clear();
+            seeding = false;
+        }
+    }
+
+    /**
+     * Cleans every collection that has been written or seeded with other fixtures and returns the
+     * {@link Doc} annotations that have to be inserted again. Untouched collections that already contain the
+     * fixtures of the plan are kept, untouched collections with other fixtures are diffed if enabled.
+     */
+    List<Doc> cleanup(TestContext context, FixturePlan plan, Consumer<CleanupScope> cleanup) {
+        Set<MongoNamespace> written = touched(context);
+        Map<MongoNamespace, String> fixtures = fixtures(context, plan);
+        boolean sweep;
+        Map<MongoNamespace, String> previousFixtures;
+        Map<MongoNamespace, Map<BsonValue, String>> previousContents;
+        synchronized (this) {
+            sweep = sweepRequired || seeding;
+            sweepRequired = failed;
+            seeding = true;
+            previousFixtures = new HashMap<>(seeded);
+            previousContents = new HashMap<>(contents);
+        }
+
+        Set<MongoNamespace> kept = new HashSet<>();
+        Map<MongoNamespace, Map<BsonValue, String>> present = new HashMap<>();
+        fixtures.forEach((namespace, fingerprint) -> {
+            if (!sweep && fingerprint != null && fingerprint.equals(previousFixtures.get(namespace)) && !written.contains(namespace)) {
+                kept.add(namespace);
+                if (previousContents.containsKey(namespace)) present.put(namespace, previousContents.get(namespace));
+            }
+        });
+        Map<MongoNamespace, FixtureDiff> diffs = new LinkedHashMap<>();
+        if (getProperty(context, INCREMENTAL_RESEED, Boolean.class, false)) {
+            docsByNamespace(context, plan).forEach((namespace, docs) -> {
+                if (fixtures.get(namespace) == null || kept.contains(namespace)) return;
+                FixtureDiff diff = FixtureDiff.of(context, docs);
+                if (diff == null) return;
+                present.put(namespace, diff.hashes());
+                if (!sweep && !written.contains(namespace) && previousContents.containsKey(namespace)) diffs.put(namespace, diff);
+            });
+        }
+
+        CleanupScope scope = CleanupScope.exhaustive();
+        if (!sweep) {
+            Set<MongoNamespace> namespaces = new LinkedHashSet<>(written);
+            namespaces.addAll(cleanable(context, previousFixtures.keySet()));
+            namespaces.removeAll(kept);
+            namespaces.removeAll(diffs.keySet());
+            scope = CleanupScope.of(namespaces);
+        }
+        cleanup.accept(scope);
+        Set<MongoNamespace> rejected = ConcurrentHashMap.newKeySet();
+        seedingExecution(context).invokeAll("apply fixture changes to", diffs.entrySet().stream()
+                .map((diff) -> new Task(diff.getKey().getFullName(), () -> {
+                    if (!diff.getValue().apply(context, diff.getKey(), previousContents.get(diff.getKey()))) {
+                        rejected.add(diff.getKey());
+                    }
+                }))
+                .collect(Collectors.toList()));
+        // a collection that rejected its changes may be partially updated, it is cleaned and seeded as usual
+        if (!rejected.isEmpty()) {
+            cleanup.accept(CleanupScope.of(rejected));
+            diffs.keySet().removeAll(rejected);
+        }
+
+        synchronized (this) {
+            seeded.clear();
+            seeded.putAll(fixtures);
+            contents.clear();
+            contents.putAll(present);
+        }
+        return plan.docs().stream()
+                .filter((doc) -> {
+                    MongoNamespace namespace = namespace(context, doc);
+                    return !kept.contains(namespace) && !diffs.containsKey(namespace);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static Set<MongoNamespace> cleanable(TestContext context, Collection<MongoNamespace> namespaces) {
+        return namespaces.stream()
+                .filter((namespace) -> isCleanableDatabase(context, namespace.getDatabaseName()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Map<MongoNamespace, List<Doc>> docsByNamespace(TestContext context, FixturePlan plan) {
+        Map<MongoNamespace, List<Doc>> docs = new LinkedHashMap<>();
+        for (Doc doc : plan.docs()) {
+            docs.computeIfAbsent(namespace(context, doc), (namespace) -> new ArrayList<>()).add(doc);
+        }
+        return docs;
+    }
+
+    private static MongoNamespace namespace(TestContext context, Doc doc) {
+        return new MongoNamespace(resolveDatabaseName(context, doc.db()), doc.collection());
+    }
+
+    /**
+     * The fixtures every namespace will contain after seeding the plan. Namespaces with generated documents,
+     * files or fixtures without a location are always seeded again, so they have no fingerprint.
+     */
+    private static Map<MongoNamespace, String> fixtures(TestContext context, FixturePlan plan) {
+        String packageName = ClassUtils.getPackageName(context.getTestClass());
+        Map<MongoNamespace, String> fixtures = new HashMap<>();
+        Set<MongoNamespace> reseeded = new HashSet<>();
+        for (Doc doc : plan.docs()) {
+            MongoNamespace namespace = namespace(context, doc);
+            StringBuilder fingerprint = new StringBuilder(fixtures.getOrDefault(namespace, packageName)).append(doc);
+            for (Resource resource : FixturePlan.resources(context, doc, doc.files())) {
+                String key = cacheKey(resource);
+                if (key == null) reseeded.add(namespace);
+                fingerprint.append('\n').append(key);
+            }
+            fixtures.put(namespace, fingerprint.toString());
+        }
+        for (GeneratedDoc doc : plan.generatedDocs()) {
+            reseeded.add(new MongoNamespace(resolveDatabaseName(context, doc.db()), doc.collection()));
+        }
+        for (GridFsFile file : plan.files()) {
+            String dbName = resolveDatabaseName(context, file.db());
+            reseeded.add(new MongoNamespace(dbName, file.bucket() + GridFsAnnotationHandler.FILES));
+            reseeded.add(new MongoNamespace(dbName, file.bucket() + GridFsAnnotationHandler.CHUNKS));
+        }
+        reseeded.forEach((namespace) -> fixtures.put(namespace, null));
+        return fixtures;
+    }
+
+    private ChangeStreamTracker start(MongoClient client) {
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+        try {
+            cursor = client.watch().cursor();
+        } catch (MongoException ex) {
+            throw changeStreamsUnsupported(ex);
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    record(cursor.next());
+                }
+            } catch (RuntimeException ex) {
+                // the client has been closed or the stream has failed, from now on every test sweeps all collections
+                synchronized (this) {
+                    failed = true;
+                    markSweepRequired();
+                }
+            }
+        }, "spring-mongodb-test-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    private synchronized void record(ChangeStreamDocument<Document> event) {
+        MongoNamespace namespace = event.getNamespace();
+        OperationType type = event.getOperationType();
+        if (namespace != null && isSentinelDatabase(namespace.getDatabaseName())) {
+            BsonValue id = event.getDocumentKey() == null ? null : event.getDocumentKey().get("_id");
+            if (type == OperationType.INSERT && id != null && id.isObjectId() && id.asObjectId().getValue().equals(pendingToken)) {
+                pendingSeen.countDown();
+            }
+            return;
+        }
+        if (namespace == null || type == OperationType.DROP_DATABASE || type == OperationType.INVALIDATE) {
+            sweepRequired = true;
+            return;
+        }
+        touched.add(namespace);
+        if (event.getDestinationNamespace() != null) touched.add(event.getDestinationNamespace());
+    }
+
+    private synchronized void markSweepRequired() {
+        sweepRequired = true;
+        if (pendingSeen != null) pendingSeen.countDown();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoDatabase;
+import org.springframework.test.context.TestContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.determineDatabaseNames;
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.isExcludedDatabase;
+
+class CleanupScope {
+    private static final CleanupScope EXHAUSTIVE = new CleanupScope(null);
+
+    private final Map<String, Set<String>> collections;
+
+    private CleanupScope(Map<String, Set<String>> collections) {
+        this.collections = collections;
+    }
+
+    static CleanupScope exhaustive() {
+        return EXHAUSTIVE;
+    }
+
+    static CleanupScope of(Collection<MongoNamespace> namespaces) {
+        Map<String, Set<String>> collections = new LinkedHashMap<>();
+        for (MongoNamespace namespace : namespaces) {
+            if (isExcludedDatabase(namespace.getDatabaseName())) continue;
+            collections.computeIfAbsent(namespace.getDatabaseName(), (db) -> new LinkedHashSet<>())
+                    .add(namespace.getCollectionName());
+        }
+        return new CleanupScope(collections);
+    }
+
+    boolean isExhaustive() {
+        return collections == null;
+    }
+
+    List<String> databaseNames(TestContext context) {
+        if (isExhaustive()) return determineDatabaseNames(context);
+        return new ArrayList<>(collections.keySet());
+    }
+
+    Iterable<String> collectionNames(MongoDatabase db) {
+        if (isExhaustive()) return db.listCollectionNames();
+        return collections.getOrDefault(db.getName(), Collections.emptySet());
+    }
+
+    Collection<String> trackedCollectionNames(String dbName) {
+        return collections.getOrDefault(dbName, Collections.emptySet());
+    }
+
+    boolean includes(String dbName, String collection) {
+        if (isExhaustive()) return true;
+        return collections.getOrDefault(dbName, Collections.<String>emptySet()).contains(collection);
+    }
+}
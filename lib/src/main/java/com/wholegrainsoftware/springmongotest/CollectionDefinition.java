@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The options of a collection as they are right before a cleanup. A definition is captured again for every
+ * cleanup, since a test may change the indexes or the validator of a collection.
+ */
+class CollectionDefinition {
+    private static final String ID_INDEX = "_id_";
+    private static final String COLLECTION_TYPE = "collection";
+    private static final String SYSTEM_PREFIX = "system.";
+
+    private final String name;
+    private final boolean droppable;
+    private final Document options;
+
+    private CollectionDefinition(String name, boolean droppable, Document options) {
+        this.name = name;
+        this.droppable = droppable;
+        this.options = options;
+    }
+
+    static CollectionDefinition of(MongoDatabase db, String name) {
+        Document info = db.listCollections().filter(new Document("name", name)).first();
+        if (info == null) return null;
+
+        String type = info.getString("type");
+        boolean droppable = (type == null || COLLECTION_TYPE.equals(type)) && !name.startsWith(SYSTEM_PREFIX);
+        return new CollectionDefinition(name, droppable, info.get("options", new Document()));
+    }
+
+    boolean isDroppable() {
+        return droppable;
+    }
+
+    /**
+     * Drops the collection and recreates it with its options and indexes.
+     */
+    void dropAndRestore(MongoDatabase db) {
+        // the indexes are only needed by a drop, so collections that are deleted from do not list them
+        List<Document> indexes = capturedIndexes(db, name);
+        db.getCollection(name).drop();
+
+        Document create = new Document("create", name);
+        create.putAll(options);
+        db.runCommand(create);
+
+        if (indexes.isEmpty()) return;
+        db.runCommand(new Document("createIndexes", name).append("indexes", indexes));
+    }
+
+    private static List<Document> capturedIndexes(MongoDatabase db, String name) {
+        return db.getCollection(name).listIndexes().into(new ArrayList<>()).stream()
+                .filter((index) -> !ID_INDEX.equals(index.getString("name")))
+                .map((index) -> {
+                    Document spec = new Document(index);
+                    spec.remove("ns");
+                    return spec;
+                })
+                .collect(Collectors.toList());
+    }
+}
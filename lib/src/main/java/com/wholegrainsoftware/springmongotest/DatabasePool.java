@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * {@code DatabasePool} provides a fixed number of databases, of which every test rents a clean one.
+ *
+ * <p>If a {@code DatabasePool} bean is present in the application context, the
+ * {@link MongoDBTestExecutionListener} rents a database before each test and seeds {@link Doc} and
+ * {@link GridFsFile} annotations without an explicit {@code db} into it. After the test the database is
+ * handed to a background thread that deletes all documents while the next tests are running, so the
+ * cleanup of the default database is no longer on the critical path. A database that cannot be cleaned
+ * after several attempts is taken out of the pool and every later rent fails. The pool databases are named
+ * {@code <baseName>_pool<n>}. The application is routed to the rented database by a
+ * {@link PooledMongoDatabaseFactory}:</p>
+ * <pre>
+ * &#64;Bean
+ * public DatabasePool databasePool(MongoClient client, &#64;Value("${spring.data.mongodb.database}") String database) {
+ *     return new DatabasePool(client, database, 4);
+ * }
+ *
+ * &#64;Bean
+ * public MongoDatabaseFactory mongoDatabaseFactory(MongoClient client, DatabasePool pool) {
+ *     return new PooledMongoDatabaseFactory(client, pool);
+ * }
+ * </pre>
+ *
+ * @author Jimi Steidl
+ * @see PooledMongoDatabaseFactory
+ * @see MongoDBTestExecutionListener
+ * @since 1.3.0
+ */
+public class DatabasePool {
+    private static final String POOL_INFIX = "_pool";
+    private static final String SYSTEM_PREFIX = "system.";
+    private static final int CLEAN_ATTEMPTS = 3;
+    private static final long FAILURE_CHECK_MILLIS = 100;
+
+    private final MongoClient client;
+    private final List<String> databaseNames;
+    private final BlockingQueue<String> available = new LinkedBlockingQueue<>();
+    private final ExecutorService recycler = Executors.newSingleThreadExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "spring-mongodb-test-recycler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong exhaustions = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong recycles = new AtomicLong();
+    private final AtomicLong recycleNanos = new AtomicLong();
+    private volatile String rented;
+    private volatile RuntimeException failure;
+
+    /**
+     * Creates a pool of {@code size} databases and starts recycling them, since they might still contain
+     * documents of a previous run.
+     */
+    public DatabasePool(MongoClient client, String baseName, int size) {
+        this.client = client;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, size); i++) {
+            names.add(baseName + POOL_INFIX + i);
+        }
+        this.databaseNames = Collections.unmodifiableList(names);
+        databaseNames.forEach(this::release);
+    }
+
+    /**
+     * Returns the database the current test has rented or the first pool database if no test holds one, e.g.
+     * between two tests or in a test without {@link MongoDBTest}.
+     */
+    public String getDatabaseName() {
+        String db = rented;
+        return db == null ? databaseNames.get(0) : db;
+    }
+
+    /**
+     * The number of databases in this pool.
+     */
+    public int poolSize() {
+        return databaseNames.size();
+    }
+
+    /**
+     * The number of clean databases that are ready to be rented.
+     */
+    public int availableCount() {
+        return available.size();
+    }
+
+    /**
+     * The number of rents that had to wait, because every database was still being recycled.
+     */
+    public long exhaustionCount() {
+        return exhaustions.get();
+    }
+
+    /**
+     * The total time in nanoseconds that rents waited for a database to be recycled.
+     */
+    public long exhaustionWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * The number of databases that have been recycled.
+     */
+    public long recycleCount() {
+        return recycles.get();
+    }
+
+    /**
+     * The total time in nanoseconds it took to recycle databases, measured from release until the
+     * database became available again.
+     */
+    public long recycleNanos() {
+        return recycleNanos.get();
+    }
+
+    boolean contains(String dbName) {
+        return databaseNames.contains(dbName);
+    }
+
+    String rent() {
+        checkFailure();
+
+        String db = available.poll();
+        if (db == null) {
+            exhaustions.incrementAndGet();
+            long start = System.nanoTime();
+            db = take();
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        rented = db;
+        return db;
+    }
+
+    void release() {
+        String db = rented;
+        rented = null;
+        if (db != null) release(db);
+    }
+
+    private void release(String db) {
+        long start = System.nanoTime();
+        recycler.execute(() -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    clean(client.getDatabase(db));
+                    break;
+                } catch (RuntimeException ex) {
+                    if (attempt < CLEAN_ATTEMPTS) continue;
+                    // a database that might still contain documents must never be rented again
+                    failure = failedToRecycle(db, ex);
+                    return;
+                }
+            }
+            recycles.incrementAndGet();
+            recycleNanos.addAndGet(System.nanoTime() - start);
+            available.add(db);
+        });
+    }
+
+    private void checkFailure() {
+        RuntimeException ex = failure;
+        if (ex != null) throw ex;
+    }
+
+    private String take() {
+        try {
+            String db;
+            while ((db = available.poll(FAILURE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            return db;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw interrupted(ex);
+        }
+    }
+
+    private static void clean(MongoDatabase db) {
+        for (String name : db.listCollectionNames()) {
+            if (name.startsWith(SYSTEM_PREFIX)) continue;
+            db.getCollection(name).deleteMany(new Document());
+        }
+    }
+}
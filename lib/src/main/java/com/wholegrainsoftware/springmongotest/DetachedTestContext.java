@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.AttributeAccessorSupport;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestContext;
+
+import java.lang.reflect.Method;
+
+/**
+ * An immutable snapshot of a {@link TestContext}, which is safe to use after the test has finished.
+ */
+class DetachedTestContext extends AttributeAccessorSupport implements TestContext {
+    private final ApplicationContext applicationContext;
+    private final Class<?> testClass;
+    private final Object testInstance;
+    private final Method testMethod;
+
+    DetachedTestContext(TestContext context) {
+        this.applicationContext = context.getApplicationContext();
+        this.testClass = context.getTestClass();
+        this.testInstance = context.getTestInstance();
+        this.testMethod = context.getTestMethod();
+    }
+
+    @Override
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    @Override
+    public Class<?> getTestClass() {
+        return testClass;
+    }
+
+    @Override
+    public Object getTestInstance() {
+        return testInstance;
+    }
+
+    @Override
+    public Method getTestMethod() {
+        return testMethod;
+    }
+
+    @Override
+    public Throwable getTestException() {
+        return null;
+    }
+
+    @Override
+    public void markApplicationContextDirty(DirtiesContext.HierarchyMode hierarchyMode) {
+        // the test has finished, whether its context is dirty is decided by the test itself
+    }
+
+    @Override
+    public void updateState(Object testInstance, Method testMethod, Throwable testException) {
+        // the snapshot keeps the state of the finished test
+    }
+}
@@ -58,6 +58,8 @@ public @interface Doc {
     /**
      * The paths of the bson files, that should be inserted as a {@link org.bson.Document}.
      * Each path will be interpreted as a Spring {@link org.springframework.core.io.Resource}.
+     * A file may contain a single document, a JSON array of documents or documents separated by new lines.
+     * Binary BSON files as written by {@code mongodump} are supported as well.
      */
     String[] files() default {};
 }
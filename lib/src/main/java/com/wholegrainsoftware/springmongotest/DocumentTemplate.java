@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.BsonArray;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+class DocumentTemplate {
+    private static final String PREFIX = "{{";
+    private static final String SUFFIX = "}}";
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    private final BsonDocument template;
+    private final Map<String, ValueGenerator> generators = new HashMap<>();
+
+    private DocumentTemplate(BsonDocument template) {
+        this.template = template;
+        collect(template);
+    }
+
+    static DocumentTemplate parse(String json) {
+        return new DocumentTemplate(BsonDocument.parse(json));
+    }
+
+    BsonDocument render(long index, SplittableRandom random) {
+        return render(template, index, random).asDocument();
+    }
+
+    private BsonValue render(BsonValue value, long index, SplittableRandom random) {
+        if (value.isDocument()) {
+            BsonDocument document = new BsonDocument();
+            value.asDocument().forEach((key, field) -> document.put(key, render(field, index, random)));
+            return document;
+        }
+        if (value.isArray()) {
+            BsonArray array = new BsonArray();
+            value.asArray().forEach((element) -> array.add(render(element, index, random)));
+            return array;
+        }
+        if (value.isString()) {
+            ValueGenerator generator = generators.get(value.asString().getValue());
+            if (generator != null) return generator.next(index, random);
+        }
+        return value;
+    }
+
+    private void collect(BsonValue value) {
+        if (value.isDocument()) {
+            value.asDocument().values().forEach(this::collect);
+        } else if (value.isArray()) {
+            value.asArray().forEach(this::collect);
+        } else if (value.isString()) {
+            String text = value.asString().getValue();
+            if (text.startsWith(PREFIX) && text.endsWith(SUFFIX)) generators.computeIfAbsent(text, DocumentTemplate::generator);
+        }
+    }
+
+    private static ValueGenerator generator(String placeholder) {
+        String expression = placeholder.substring(PREFIX.length(), placeholder.length() - SUFFIX.length()).trim();
+        int colon = expression.indexOf(':');
+        String type = colon < 0 ? expression : expression.substring(0, colon);
+        String[] args = colon < 0 ? new String[0] : expression.substring(colon + 1).split(",");
+        try {
+            switch (type) {
+                case "objectId":
+                    return (index, random) -> new BsonObjectId(objectId(random));
+                case "sequence":
+                    long start = args.length > 0 ? Long.parseLong(args[0].trim()) : 0;
+                    return (index, random) -> new BsonInt64(start + index);
+                case "string":
+                    int length = Integer.parseInt(args[0].trim());
+                    return (index, random) -> new BsonString(string(random, length));
+                case "int":
+                    int minInt = Integer.parseInt(args[0].trim());
+                    int maxInt = Integer.parseInt(args[1].trim());
+                    return (index, random) -> new BsonInt32(random.nextInt(minInt, maxInt));
+                case "long":
+                    long minLong = Long.parseLong(args[0].trim());
+                    long maxLong = Long.parseLong(args[1].trim());
+                    return (index, random) -> new BsonInt64(random.nextLong(minLong, maxLong));
+                case "double":
+                    double minDouble = Double.parseDouble(args[0].trim());
+                    double maxDouble = Double.parseDouble(args[1].trim());
+                    return (index, random) -> new BsonDouble(random.nextDouble(minDouble, maxDouble));
+                case "date":
+                    long from = Instant.parse(args[0].trim()).toEpochMilli();
+                    long to = Instant.parse(args[1].trim()).toEpochMilli();
+                    return (index, random) -> new BsonDateTime(random.nextLong(from, to));
+                default:
+                    throw invalidPlaceholder(placeholder);
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | DateTimeParseException ex) {
+            throw invalidPlaceholder(placeholder);
+        }
+    }
+
+    private static ObjectId objectId(SplittableRandom random) {
+        byte[] bytes = new byte[12];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt(256);
+        }
+        return new ObjectId(bytes);
+    }
+
+    private static String string(SplittableRandom random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+
+    private interface ValueGenerator {
+        BsonValue next(long index, SplittableRandom random);
+    }
+}
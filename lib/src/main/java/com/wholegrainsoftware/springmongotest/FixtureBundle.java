@@ -0,0 +1,269 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * Pre-encoded fixtures written by {@link FixtureBundleCompiler}. Every entry is keyed by the classpath
+ * location of its resource and remembers the length and CRC32 of the resource it was compiled from, so
+ * that a stale entry is never used.
+ *
+ * <p>Loading a bundle only reads the position of every entry. Its documents are read from the bundle on
+ * lookup, so they are only held in memory by the {@link FixtureCache} and its size limit applies. The
+ * checksum of a resource is computed once per modification of the resource.</p>
+ */
+class FixtureBundle {
+    static final String LOCATION = "META-INF/spring-mongodb-test/fixtures.bundle";
+    private static final int MAGIC = 0x534d5442;
+    private static final int VERSION = 1;
+    private static final FixtureBundle EMPTY = new FixtureBundle(Collections.emptyMap());
+    private static volatile FixtureBundle shared;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, Long> checksums = new ConcurrentHashMap<>();
+
+    FixtureBundle(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    static FixtureBundle shared() {
+        FixtureBundle bundle = shared;
+        if (bundle == null) {
+            synchronized (FixtureBundle.class) {
+                if (shared == null) shared = load(ClassUtils.getDefaultClassLoader());
+                bundle = shared;
+            }
+        }
+        return bundle;
+    }
+
+    static FixtureBundle load(ClassLoader classLoader) {
+        Map<String, Entry> entries = new HashMap<>();
+        try {
+            Enumeration<URL> urls = classLoader == null ? ClassLoader.getSystemResources(LOCATION) : classLoader.getResources(LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                try (InputStream input = url.openStream()) {
+                    entries.putAll(read(input, url));
+                }
+            }
+        } catch (IOException ex) {
+            throw failedToReadFile(ex);
+        }
+        return entries.isEmpty() ? EMPTY : new FixtureBundle(entries);
+    }
+
+    static String documentsKey(Resource resource) {
+        return resource instanceof ClassPathResource ? ((ClassPathResource) resource).getPath() : null;
+    }
+
+    static String chunksKey(Resource resource, int chunkSize) {
+        String key = documentsKey(resource);
+        return key == null ? null : key + "#" + chunkSize;
+    }
+
+    static long checksum(Resource resource) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream input = resource.getInputStream()) {
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    List<RawBsonDocument> documents(Resource resource) {
+        return lookup(documentsKey(resource), resource);
+    }
+
+    List<RawBsonDocument> chunks(Resource resource, int chunkSize) {
+        return lookup(chunksKey(resource, chunkSize), resource);
+    }
+
+    void write(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeLong(entry.getValue().length);
+            data.writeLong(entry.getValue().checksum);
+            int size = 0;
+            List<RawBsonDocument> documents = entry.getValue().documents();
+            for (RawBsonDocument document : documents) {
+                size += document.getByteBuffer().remaining();
+            }
+            data.writeInt(size);
+            for (RawBsonDocument document : documents) {
+                ByteBuffer buffer = document.getByteBuffer().asNIO();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                data.write(bytes);
+            }
+        }
+        data.flush();
+    }
+
+    private List<RawBsonDocument> lookup(String key, Resource resource) {
+        Entry entry = key == null ? null : entries.get(key);
+        if (entry == null || contentLength(resource) != entry.length) return null;
+        Long checksum = checksumOf(resource);
+        return checksum != null && checksum == entry.checksum ? entry.documents() : null;
+    }
+
+    private Long checksumOf(Resource resource) {
+        String key = cacheKey(resource);
+        if (key == null) return readChecksum(resource);
+        return checksums.computeIfAbsent(key, (k) -> readChecksum(resource));
+    }
+
+    private static Long readChecksum(Resource resource) {
+        try {
+            return checksum(resource);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static Map<String, Entry> read(InputStream input, URL url) throws IOException {
+        CountingInputStream counting = new CountingInputStream(new BufferedInputStream(input));
+        DataInputStream data = new DataInputStream(counting);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) throw invalidFixtureBundle(url.toExternalForm());
+        int count = data.readInt();
+        Map<String, Entry> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = data.readUTF();
+            long length = data.readLong();
+            long checksum = data.readLong();
+            int size = data.readInt();
+            entries.put(key, new Entry(length, checksum, url, counting.count, size));
+            skipFully(data, size);
+        }
+        return entries;
+    }
+
+    private static void skipFully(DataInputStream data, long bytes) throws IOException {
+        for (long remaining = bytes; remaining > 0; ) {
+            int skipped = data.skipBytes((int) Math.min(remaining, Integer.MAX_VALUE));
+            if (skipped == 0 && data.read() == -1) throw new EOFException();
+            remaining -= Math.max(1, skipped);
+        }
+    }
+
+    static class Entry {
+        private final long length;
+        private final long checksum;
+        private final List<RawBsonDocument> documents;
+        private final URL bundle;
+        private final long offset;
+        private final int size;
+
+        Entry(long length, long checksum, List<RawBsonDocument> documents) {
+            this(length, checksum, documents, null, 0, 0);
+        }
+
+        private Entry(long length, long checksum, URL bundle, long offset, int size) {
+            this(length, checksum, null, bundle, offset, size);
+        }
+
+        private Entry(long length, long checksum, List<RawBsonDocument> documents, URL bundle, long offset, int size) {
+            this.length = length;
+            this.checksum = checksum;
+            this.documents = documents;
+            this.bundle = bundle;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        List<RawBsonDocument> documents() {
+            if (documents != null) return documents;
+            try (InputStream input = bundle.openStream()) {
+                DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+                skipFully(data, offset);
+                byte[] bytes = new byte[size];
+                data.readFully(bytes);
+                return FixtureReader.slice(bytes);
+            } catch (IOException ex) {
+                throw failedToReadFile(ex);
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) count++;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long bytes) throws IOException {
+            long skipped = super.skip(bytes);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.test.context.util.TestContextResourceUtils;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * Compiles the fixtures of all {@link Doc} and {@link GridFsFile} annotations found in the given test
+ * class directories into a single bundle of encoded BSON documents and GridFS chunks. Every fixture is
+ * validated on the way, so malformed files fail the build instead of the first test that uses them.
+ *
+ * <p>The listener picks the bundle up from {@code META-INF/spring-mongodb-test/fixtures.bundle} on the test
+ * classpath and uses an entry only as long as the length and checksum of its resource are unchanged. Other
+ * fixtures are still read at runtime.</p>
+ *
+ * <p>Usage: {@code FixtureBundleCompiler <bundle file> <test class directory>...}, e.g. as a Gradle
+ * {@code JavaExec} task with the test runtime classpath.</p>
+ *
+ * @author Jimi Steidl
+ * @since 1.3.0
+ */
+public class FixtureBundleCompiler {
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ClassLoader classLoader;
+    private final ResourceLoader resourceLoader;
+    private final Map<String, FixtureBundle.Entry> entries = new LinkedHashMap<>();
+    private final List<String> problems = new ArrayList<>();
+
+    public FixtureBundleCompiler(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        this.resourceLoader = new DefaultResourceLoader(classLoader);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: FixtureBundleCompiler <bundle file> <test class directory>...");
+        }
+        FixtureBundleCompiler compiler = new FixtureBundleCompiler(ClassUtils.getDefaultClassLoader());
+        for (int i = 1; i < args.length; i++) {
+            compiler.scan(Paths.get(args[i]));
+        }
+        compiler.write(Paths.get(args[0]));
+    }
+
+    public void scan(Path classesDirectory) throws IOException {
+        if (!Files.isDirectory(classesDirectory)) return;
+        List<String> classNames;
+        try (Stream<Path> files = Files.walk(classesDirectory)) {
+            classNames = files.map((file) -> classesDirectory.relativize(file).toString())
+                    .filter((name) -> name.endsWith(CLASS_SUFFIX))
+                    .map((name) -> name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.').replace('\\', '.'))
+                    .collect(Collectors.toList());
+        }
+        for (String className : classNames) {
+            Class<?> testClass = load(className);
+            if (testClass != null) compile(testClass);
+        }
+    }
+
+    public void compile(Class<?> testClass) {
+        List<AnnotatedElement> elements = new ArrayList<>();
+        elements.add(testClass);
+        try {
+            elements.addAll(Arrays.asList(testClass.getDeclaredMethods()));
+        } catch (LinkageError ex) {
+            return;
+        }
+        for (AnnotatedElement element : elements) {
+            for (Doc doc : AnnotatedElementUtils.getMergedRepeatableAnnotations(element, Doc.class)) {
+                for (Resource resource : resources(testClass, doc.files())) {
+                    compileDocuments(location(testClass, element), resource);
+                }
+            }
+            for (GridFsFile file : AnnotatedElementUtils.getMergedRepeatableAnnotations(element, GridFsFile.class)) {
+                if (!ObjectId.isValid(file.id())) problems.add(location(testClass, element) + ": invalid GridFS id " + file.id());
+                try {
+                    Document.parse(file.metadata());
+                } catch (RuntimeException ex) {
+                    problems.add(location(testClass, element) + ": invalid GridFS metadata " + file.metadata() + " (" + ex.getMessage() + ")");
+                }
+                int chunkSize = file.chunkSize() > 0 ? file.chunkSize() : DEFAULT_GRIDFS_CHUNK_SIZE;
+                for (Resource resource : resources(testClass, file.filePath())) {
+                    compileChunks(location(testClass, element), resource, chunkSize);
+                }
+            }
+        }
+    }
+
+    public void write(Path bundle) throws IOException {
+        if (!problems.isEmpty()) throw invalidFixtures(problems);
+        if (bundle.getParent() != null) Files.createDirectories(bundle.getParent());
+        try (OutputStream output = Files.newOutputStream(bundle)) {
+            new FixtureBundle(entries).write(output);
+        }
+    }
+
+    private void compileDocuments(String location, Resource resource) {
+        String key = FixtureBundle.documentsKey(resource);
+        if (key == null || entries.containsKey(key)) return;
+        try {
+            List<RawBsonDocument> documents = FixtureReader.read(resource);
+            // binary files are only sliced while reading, so every document is walked once to validate it
+            documents.forEach(RawBsonDocument::size);
+            entries.put(key, entry(resource, documents));
+        } catch (IOException | RuntimeException ex) {
+            problems.add(location + ": " + resource.getDescription() + " (" + ex.getMessage() + ")");
+        }
+    }
+
+    private void compileChunks(String location, Resource resource, int chunkSize) {
+        String key = FixtureBundle.chunksKey(resource, chunkSize);
+        if (key == null || entries.containsKey(key)) return;
+        try {
+            entries.put(key, entry(resource, GridFsAnnotationHandler.readChunks(resource, resource.contentLength(), chunkSize)));
+        } catch (IOException | RuntimeException ex) {
+            problems.add(location + ": " + resource.getDescription() + " (" + ex.getMessage() + ")");
+        }
+    }
+
+    private FixtureBundle.Entry entry(Resource resource, List<RawBsonDocument> documents) throws IOException {
+        return new FixtureBundle.Entry(resource.contentLength(), FixtureBundle.checksum(resource), documents);
+    }
+
+    private List<Resource> resources(Class<?> testClass, String... paths) {
+        String[] fileNames = TestContextResourceUtils.convertToClasspathResourcePaths(testClass, paths);
+        return TestContextResourceUtils.convertToResourceList(resourceLoader, fileNames);
+    }
+
+    private Class<?> load(String className) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    private String location(Class<?> testClass, AnnotatedElement element) {
+        return element instanceof Method ? testClass.getName() + "#" + ((Method) element).getName() : testClass.getName();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@code FixtureCache} keeps the encoded documents of fixture files and the chunks of GridFS files in
+ * memory, so that a fixture which is used by several tests only has to be read and parsed once.
+ *
+ * <p>Entries are keyed by the URL and the last-modified timestamp of the underlying resource and
+ * are evicted in least-recently-used order as soon as the total size of all cached documents
+ * exceeds the configured limit.</p>
+ *
+ * @author Jimi Steidl
+ * @see MongoDBTestExecutionListener
+ * @since 1.3.0
+ */
+public final class FixtureCache {
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final FixtureCache SHARED = new FixtureCache(DEFAULT_MAX_BYTES);
+
+    private final Map<String, List<RawBsonDocument>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long maxBytes;
+    private long bytes;
+
+    FixtureCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache that is shared by all {@link MongoDBTestExecutionListener} instances of this JVM.
+     */
+    public static FixtureCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * The number of lookups that could be answered from the cache.
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * The number of lookups that required the fixture to be read and parsed.
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * The number of entries that have been removed to stay below the size limit.
+     */
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * The total size in bytes of all documents that are currently cached.
+     */
+    public synchronized long size() {
+        return bytes;
+    }
+
+    List<RawBsonDocument> get(String key, Supplier<List<RawBsonDocument>> loader) {
+        if (key == null) return loader.get();
+
+        List<RawBsonDocument> documents = lookup(key);
+        if (documents != null) {
+            hits.incrementAndGet();
+            return documents;
+        }
+
+        misses.incrementAndGet();
+        documents = Collections.unmodifiableList(loader.get());
+        store(key, documents);
+        return documents;
+    }
+
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private synchronized List<RawBsonDocument> lookup(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void store(String key, List<RawBsonDocument> documents) {
+        long weight = weigh(documents);
+        if (weight > maxBytes) return;
+
+        List<RawBsonDocument> previous = entries.put(key, documents);
+        if (previous != null) bytes -= weigh(previous);
+        bytes += weight;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<List<RawBsonDocument>> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= weigh(it.next());
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static long weigh(List<RawBsonDocument> documents) {
+        long weight = 0;
+        for (RawBsonDocument document : documents) {
+            weight += document.getByteBuffer().remaining();
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.springframework.test.context.TestContext;
+import org.springframework.util.DigestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.getDatabase;
+
+/**
+ * The documents the {@link Doc} annotations of a single collection declare, keyed by {@code _id}, together
+ * with a hash of their content. Comparing it with the hashes of the documents a collection currently contains
+ * yields the writes that turn one set of fixtures into the other.
+ */
+class FixtureDiff {
+    private static final String ID = "_id";
+
+    private final Map<BsonValue, RawBsonDocument> documents;
+    private final Map<BsonValue, String> hashes;
+
+    private FixtureDiff(Map<BsonValue, RawBsonDocument> documents, Map<BsonValue, String> hashes) {
+        this.documents = documents;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Returns {@code null} if the collection cannot be diffed, since a document gets a new {@code _id} on
+     * every insert or two different documents are declared with the same {@code _id}.
+     */
+    static FixtureDiff of(TestContext context, List<Doc> annotations) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        for (Doc annotation : annotations) {
+            documents.addAll(MongoDBAnnotationHandler.declaredDocuments(context, annotation));
+        }
+        return of(documents);
+    }
+
+    static FixtureDiff of(List<RawBsonDocument> declared) {
+        Map<BsonValue, RawBsonDocument> documents = new LinkedHashMap<>();
+        Map<BsonValue, String> hashes = new LinkedHashMap<>();
+        for (RawBsonDocument document : declared) {
+            BsonValue id = document.get(ID);
+            if (id == null) return null;
+            String hash = hash(document);
+            // the same document declared twice, e.g. on the test class and the test method, is inserted once
+            String previous = hashes.putIfAbsent(id, hash);
+            if (previous == null) {
+                documents.put(id, document);
+            } else if (!previous.equals(hash)) {
+                return null;
+            }
+        }
+        return new FixtureDiff(documents, Collections.unmodifiableMap(hashes));
+    }
+
+    Map<BsonValue, String> hashes() {
+        return hashes;
+    }
+
+    /**
+     * Deletes the documents of the collection that are no longer declared, replaces the changed ones and
+     * inserts the new ones. Returns {@code false} if the collection rejected a write, e.g. because of a unique
+     * index on another field than {@code _id}, so that it has to be cleaned and seeded again.
+     */
+    boolean apply(TestContext context, MongoNamespace namespace, Map<BsonValue, String> present) {
+        List<WriteModel<RawBsonDocument>> writes = writes(present);
+        if (writes.isEmpty()) return true;
+
+        try (Trace ignored = Trace.start(context, "apply fixture changes").database(namespace.getDatabaseName())
+                .collection(namespace.getCollectionName()).documents(writes.size())) {
+            getDatabase(context, namespace.getDatabaseName())
+                    .getCollection(namespace.getCollectionName(), RawBsonDocument.class)
+                    .bulkWrite(writes);
+            return true;
+        } catch (MongoBulkWriteException ex) {
+            return false;
+        }
+    }
+
+    List<WriteModel<RawBsonDocument>> writes(Map<BsonValue, String> present) {
+        List<WriteModel<RawBsonDocument>> writes = new ArrayList<>();
+        for (BsonValue id : present.keySet()) {
+            if (!documents.containsKey(id)) writes.add(new DeleteOneModel<>(Filters.eq(ID, id)));
+        }
+        documents.forEach((id, document) -> {
+            String hash = present.get(id);
+            if (hash == null) {
+                writes.add(new InsertOneModel<>(document));
+            } else if (!hash.equals(hashes.get(id))) {
+                writes.add(new ReplaceOneModel<>(Filters.eq(ID, id), document));
+            }
+        });
+        return writes;
+    }
+
+    private static String hash(RawBsonDocument document) {
+        ByteBuffer buffer = document.getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return DigestUtils.md5DigestAsHex(bytes);
+    }
+}
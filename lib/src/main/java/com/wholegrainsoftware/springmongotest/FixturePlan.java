@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.TestContext;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * Everything the listener needs to seed a test method, which does not change between two runs of the
+ * same method against the same application context: the merged annotations, their resolved resources
+ * and the beans and properties that determine where they are inserted.
+ */
+class FixturePlan {
+    static final String ATTRIBUTE = FixturePlan.class.getName();
+    private static final Map<ApplicationContext, Map<List<Object>, FixturePlan>> PLANS = new ConcurrentHashMap<>();
+    private static final boolean REACTIVE_DRIVER_PRESENT = ClassUtils.isPresent(
+            "com.mongodb.reactivestreams.client.MongoClient", FixturePlan.class.getClassLoader());
+
+    private final MongoClient client;
+    private final com.mongodb.reactivestreams.client.MongoClient reactiveClient;
+    private final DatabasePool pool;
+    private final NamespaceTracker tracker;
+    private final String defaultDatabase;
+    private final String isolationSuffix;
+    private final List<Doc> docs;
+    private final List<GeneratedDoc> generatedDocs;
+    private final List<GridFsFile> files;
+    private final String fingerprint;
+    private final Map<Annotation, List<Resource>> resources = new IdentityHashMap<>();
+
+    private FixturePlan(TestContext context) {
+        ApplicationContext applicationContext = context.getApplicationContext();
+        this.client = applicationContext.getBeanProvider(MongoClient.class).getIfAvailable();
+        // applications that only configure the reactive driver are seeded through it
+        this.reactiveClient = client == null && REACTIVE_DRIVER_PRESENT
+                ? applicationContext.getBeanProvider(com.mongodb.reactivestreams.client.MongoClient.class).getIfAvailable() : null;
+        if (client == null && reactiveClient == null) {
+            // fails with the usual NoSuchBeanDefinitionException
+            applicationContext.getBean(MongoClient.class);
+        }
+        this.pool = getDatabasePool(context);
+        this.tracker = getTracker(context);
+        this.defaultDatabase = getDatabaseName(applicationContext.getEnvironment());
+        this.isolationSuffix = getIsolationSuffix(context);
+        this.docs = annotations(context, Doc.class);
+        this.generatedDocs = annotations(context, GeneratedDoc.class);
+        this.files = annotations(context, GridFsFile.class);
+        // relative fixture paths are resolved against the package of the test class
+        this.fingerprint = ClassUtils.getPackageName(context.getTestClass()) + docs + generatedDocs + files;
+        docs.forEach((doc) -> resources.put(doc, resolveResources(context, doc.files())));
+        files.forEach((file) -> resources.put(file, resolveResources(context, file.filePath())));
+    }
+
+    static FixturePlan of(TestContext context) {
+        ApplicationContext applicationContext = context.getApplicationContext();
+        Map<List<Object>, FixturePlan> plans = PLANS.computeIfAbsent(applicationContext, (ctx) -> {
+            if (ctx instanceof ConfigurableApplicationContext) {
+                ((ConfigurableApplicationContext) ctx).addApplicationListener(new Invalidation(ctx));
+            }
+            return new ConcurrentHashMap<>();
+        });
+        return plans.computeIfAbsent(Arrays.asList(context.getTestClass(), context.getTestMethod()), (key) -> new FixturePlan(context));
+    }
+
+    static FixturePlan current(TestContext context) {
+        return (FixturePlan) context.getAttribute(ATTRIBUTE);
+    }
+
+    static List<Resource> resources(TestContext context, Annotation annotation, String... paths) {
+        FixturePlan plan = current(context);
+        List<Resource> resolved = plan == null ? null : plan.resources.get(annotation);
+        return resolved != null ? resolved : resolveResources(context, paths);
+    }
+
+    MongoClient client() {
+        return client;
+    }
+
+    com.mongodb.reactivestreams.client.MongoClient reactiveClient() {
+        return reactiveClient;
+    }
+
+    boolean isReactive() {
+        return client == null;
+    }
+
+    DatabasePool pool() {
+        return pool;
+    }
+
+    NamespaceTracker tracker() {
+        return tracker;
+    }
+
+    List<Doc> docs() {
+        return docs;
+    }
+
+    List<GeneratedDoc> generatedDocs() {
+        return generatedDocs;
+    }
+
+    List<GridFsFile> files() {
+        return files;
+    }
+
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    String databaseName(String databaseName) {
+        if (!databaseName.isEmpty()) return withSuffix(databaseName, isolationSuffix);
+        if (pool != null) return pool.getDatabaseName();
+        if (defaultDatabase == null) throw unspecifiedDatabase();
+        return defaultDatabase;
+    }
+
+    private static <T extends Annotation> List<T> annotations(TestContext context, Class<T> clazz) {
+        try (Trace ignored = Trace.start(context, "merge annotations")) {
+            List<T> annotations = new ArrayList<>();
+            annotations.addAll(AnnotatedElementUtils.getMergedRepeatableAnnotations(context.getTestClass(), clazz));
+            annotations.addAll(AnnotatedElementUtils.getMergedRepeatableAnnotations(context.getTestMethod(), clazz));
+            return annotations;
+        }
+    }
+
+    private static class Invalidation implements ApplicationListener<ApplicationEvent> {
+        private final ApplicationContext context;
+
+        Invalidation(ApplicationContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            if (event instanceof ContextClosedEvent && ((ContextClosedEvent) event).getApplicationContext() == context) {
+                PLANS.remove(context);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Splits a fixture file into its documents. A file may contain a single document, a JSON array of
+ * documents (e.g. {@code mongoexport --jsonArray}) or documents separated by whitespace or new lines
+ * (e.g. NDJSON or plain {@code mongoexport}). Each document is decoded as soon as its closing brace is read.
+ * Anything but whitespace, brackets and commas between the documents as well as an unterminated document is
+ * rejected, so that a typo does not silently leave a test without fixtures.
+ *
+ * <p>Binary files as written by {@code mongodump} are read into a single array, which is sliced into
+ * {@link RawBsonDocument} views without decoding any field. They are told apart from JSON by their leading
+ * little-endian document length: every printable JSON prefix reads as a length far beyond the maximum
+ * BSON document size.</p>
+ */
+class FixtureReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final int LENGTH_BYTES = 4;
+    private static final int MIN_DOCUMENT_SIZE = 5;
+    private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024 + 16 * 1024;
+
+    private FixtureReader() {
+    }
+
+    static List<RawBsonDocument> read(Resource resource) throws IOException {
+        try (InputStream input = new BufferedInputStream(resource.getInputStream())) {
+            input.mark(LENGTH_BYTES);
+            byte[] header = new byte[LENGTH_BYTES];
+            int length = readFully(input, header) == LENGTH_BYTES ? littleEndian(header).getInt(0) : -1;
+            input.reset();
+            if (length < MIN_DOCUMENT_SIZE || length > MAX_DOCUMENT_SIZE) {
+                return read(new InputStreamReader(input, UTF_8));
+            }
+            return slice(resource.isFile() ? readFile(resource) : StreamUtils.copyToByteArray(input));
+        }
+    }
+
+    static List<RawBsonDocument> slice(byte[] bytes) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        ByteBuffer buffer = littleEndian(bytes);
+        int offset = 0;
+        while (offset < bytes.length) {
+            int remaining = bytes.length - offset;
+            int length = remaining >= LENGTH_BYTES ? buffer.getInt(offset) : -1;
+            if (length < MIN_DOCUMENT_SIZE || length > remaining || bytes[offset + length - 1] != 0) {
+                throw malformedBson(offset);
+            }
+            documents.add(new RawBsonDocument(bytes, offset, length));
+            offset += length;
+        }
+        return documents;
+    }
+
+    static List<RawBsonDocument> read(Reader reader) throws IOException {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        StringBuilder document = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int depth = 0;
+        char quote = 0;
+        boolean escaped = false;
+        long offset = 0;
+
+        for (int read = reader.read(buffer); read != -1; offset += read, read = reader.read(buffer)) {
+            int start = depth > 0 ? 0 : -1;
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (depth == 0 && c != '{') {
+                    if (!isSeparator(c)) throw malformedJson(offset + i);
+                } else if (quote != 0) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '{') {
+                    if (depth++ == 0) start = i;
+                } else if (c == '}' && --depth == 0) {
+                    document.append(buffer, start, i + 1 - start);
+                    documents.add(RawBsonDocument.parse(document.toString()));
+                    document.setLength(0);
+                    start = -1;
+                }
+            }
+            if (start >= 0) document.append(buffer, start, read - start);
+        }
+        if (depth > 0) throw malformedJson(offset);
+        return documents;
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == '[' || c == ']' || c == ',' || c == BYTE_ORDER_MARK;
+    }
+
+    private static byte[] readFile(Resource resource) throws IOException {
+        try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until the file is consumed
+            }
+            return buffer.array();
+        }
+    }
+
+    private static int readFully(InputStream input, byte[] bytes) throws IOException {
+        int total = 0;
+        for (int read = 0; total < bytes.length && read != -1; total += Math.max(0, read)) {
+            read = input.read(bytes, total, bytes.length - total);
+        }
+        return total;
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
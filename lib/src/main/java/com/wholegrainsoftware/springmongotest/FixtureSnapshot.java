@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import org.bson.Document;
+import org.springframework.test.context.TestContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.determineDatabaseNames;
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.getClient;
+
+class FixtureSnapshot {
+    private static final String DB_HASH = "dbHash";
+    private static final String MD5 = "md5";
+    private static volatile FixtureSnapshot last;
+
+    private final MongoClient client;
+    private final String fingerprint;
+    private final Map<String, String> hashes;
+
+    private FixtureSnapshot(MongoClient client, String fingerprint, Map<String, String> hashes) {
+        this.client = client;
+        this.fingerprint = fingerprint;
+        this.hashes = hashes;
+    }
+
+    static void record(TestContext context, String fingerprint) {
+        MongoClient client = getClient(context);
+        last = new FixtureSnapshot(client, fingerprint, hashes(context, client));
+    }
+
+    static boolean isUnchanged(TestContext context, String fingerprint) {
+        FixtureSnapshot snapshot = last;
+        if (snapshot == null || !snapshot.fingerprint.equals(fingerprint)) return false;
+
+        MongoClient client = getClient(context);
+        return snapshot.client == client && snapshot.hashes.equals(hashes(context, client));
+    }
+
+    static void invalidate() {
+        last = null;
+    }
+
+    private static Map<String, String> hashes(TestContext context, MongoClient client) {
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String dbName : determineDatabaseNames(context)) {
+            Document result = client.getDatabase(dbName).runCommand(new Document(DB_HASH, 1));
+            hashes.put(dbName, result.getString(MD5));
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.TestContext;
+import org.springframework.util.DigestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Seeds every distinct set of {@link Doc} fixtures of a collection once into a template collection and copies
+ * it into the target collection with a server-side {@code $merge} afterwards. A template is named after the
+ * locations and modification dates of its files, so changed files are seeded into a new template and the
+ * template of their previous version is dropped.
+ */
+class FixtureTemplates {
+    static final String DATABASE = "spring_mongodb_test_templates";
+    private static final Map<MongoClient, Set<String>> TEMPLATES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private FixtureTemplates() {
+    }
+
+    static boolean isEnabled(TestContext context) {
+        // $merge is not allowed within a transaction
+        return getProperty(context, SEEDING_TEMPLATES, Boolean.class, false) && !isTransactional(context);
+    }
+
+    static boolean isTemplateDatabase(String dbName) {
+        return dbName.startsWith(DATABASE);
+    }
+
+    /**
+     * Copies the documents of the given annotations from their template into the collection, or returns
+     * {@code false} if they cannot be kept in a template.
+     */
+    static boolean seed(TestContext context, String dbName, String collection, List<Doc> annotations) {
+        String name = templateName(context, collection, annotations);
+        if (name == null) return false;
+
+        MongoClient client = getClient(context);
+        MongoDatabase templates = client.getDatabase(DATABASE + getIsolationSuffix(context));
+        Set<String> prepared = TEMPLATES.computeIfAbsent(client, (c) -> ConcurrentHashMap.newKeySet());
+        if (!prepared.contains(templates.getName() + "." + name)) {
+            prepare(context, templates, name, annotations);
+            String lineage = templates.getName() + "." + lineage(name);
+            prepared.removeIf((template) -> template.startsWith(lineage));
+            prepared.add(templates.getName() + "." + name);
+        }
+
+        recordSeeded(context, dbName, collection);
+        try (Trace ignored = Trace.start(context, "copy template").database(dbName).collection(collection)) {
+            templates.getCollection(name, RawBsonDocument.class)
+                    .aggregate(Collections.singletonList(Aggregates.merge(new MongoNamespace(dbName, collection),
+                            new MergeOptions().whenMatched(MergeOptions.WhenMatched.FAIL))))
+                    .toCollection();
+        }
+        return true;
+    }
+
+    static void prepare(TestContext context, MongoDatabase templates, String name, List<Doc> annotations) {
+        // templates of previous runs are still valid, since their name changes with their files
+        if (templates.listCollections().filter(Filters.eq("name", name)).first() != null) return;
+
+        List<RawBsonDocument> documents = annotations.stream()
+                .flatMap((annotation) -> MongoDBAnnotationHandler.documents(context, annotation).stream())
+                .collect(Collectors.toList());
+        String staging = name + ".staging-" + new ObjectId().toHexString();
+        MongoCollection<RawBsonDocument> collection = templates.getCollection(staging, RawBsonDocument.class);
+        try (Trace ignored = Trace.start(context, "seed template").database(templates.getName()).collection(name)
+                .documents(documents.size())) {
+            templates.createCollection(staging);
+            if (!documents.isEmpty()) collection.insertMany(documents);
+            // a template only becomes visible once it is complete
+            collection.renameCollection(new MongoNamespace(templates.getName(), name), new RenameCollectionOptions().dropTarget(true));
+            dropPreviousVersions(templates, name);
+        } catch (RuntimeException | Error ex) {
+            // the name of the staging collection is never used again, so it would be left behind for good
+            try {
+                collection.drop();
+            } catch (RuntimeException dropFailure) {
+                ex.addSuppressed(dropFailure);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Drops the templates seeded from an older version of the same files, which are never used again.
+     */
+    private static void dropPreviousVersions(MongoDatabase templates, String name) {
+        String lineage = lineage(name);
+        for (String existing : templates.listCollectionNames()) {
+            // including staging collections that an aborted run left behind
+            if (existing.startsWith(lineage) && !existing.startsWith(name)) templates.getCollection(existing).drop();
+        }
+    }
+
+    /**
+     * The part of a template name that only depends on the locations of its files.
+     */
+    private static String lineage(String name) {
+        return name.substring(0, name.lastIndexOf('.') + 1);
+    }
+
+    private static String templateName(TestContext context, String collection, List<Doc> annotations) {
+        StringBuilder files = new StringBuilder(collection);
+        StringBuilder versions = new StringBuilder();
+        for (Doc annotation : annotations) {
+            for (Resource resource : FixturePlan.resources(context, annotation, annotation.files())) {
+                String key = cacheKey(resource);
+                if (key == null) return null;
+                files.append('\n').append(key, 0, key.lastIndexOf('@'));
+                versions.append('\n').append(key);
+            }
+        }
+        return collection + "." + DigestUtils.md5DigestAsHex(files.toString().getBytes(UTF_8))
+                + "." + DigestUtils.md5DigestAsHex(versions.toString().getBytes(UTF_8));
+    }
+}
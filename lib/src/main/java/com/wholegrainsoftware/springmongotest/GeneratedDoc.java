@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import java.lang.annotation.*;
+
+/**
+ * {@code GeneratedDoc} is used to annotate a test class or test method to configure
+ * insertion of a large number of generated Documents during integration tests.
+ *
+ * <p>Every document is rendered from the {@link #template()}, in which string values of the
+ * following form are replaced by generated values:</p>
+ * <ul>
+ *     <li>{@code "{{objectId}}"} - an {@link org.bson.types.ObjectId}</li>
+ *     <li>{@code "{{sequence}}"} or {@code "{{sequence:<start>}}"} - the index of the document plus start</li>
+ *     <li>{@code "{{string:<length>}}"} - a random string of letters and digits</li>
+ *     <li>{@code "{{int:<min>,<max>}}"}, {@code "{{long:<min>,<max>}}"}, {@code "{{double:<min>,<max>}}"} -
+ *     a random number between min (inclusive) and max (exclusive)</li>
+ *     <li>{@code "{{date:<from>,<to>}}"} - a random date between two ISO-8601 instants</li>
+ * </ul>
+ *
+ * <p>The same {@link #seed()} always produces the same documents. Documents are generated in batches
+ * while they are inserted, so the memory consumption does not depend on the {@link #count()}.</p>
+ *
+ * <p>Document generation is performed by {@link MongoDBTestExecutionListener}
+ * which has to be enabled manually.</p>
+ *
+ * @author Jimi Steidl
+ * @see GeneratedDocs
+ * @see Doc
+ * @see MongoDBTestExecutionListener
+ * @since 1.3.0
+ */
+@Inherited
+@Documented
+@Repeatable(GeneratedDocs.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface GeneratedDoc {
+
+    /**
+     * This specifies the database into which the documents should be inserted.
+     */
+    String db() default "";
+
+    /**
+     * This specifies the collection into which the documents should be inserted.
+     */
+    String collection();
+
+    /**
+     * The Extended JSON template every generated document is rendered from.
+     */
+    String template();
+
+    /**
+     * The number of documents that should be generated.
+     */
+    long count();
+
+    /**
+     * The seed of the random values.
+     */
+    long seed() default 0;
+}
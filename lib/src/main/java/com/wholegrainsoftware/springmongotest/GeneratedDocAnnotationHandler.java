@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.wholegrainsoftware.springmongotest.ParallelExecution.Task;
+import org.bson.BsonDocument;
+import org.springframework.test.context.TestContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+
+class GeneratedDocAnnotationHandler implements AnnotationHandler<GeneratedDoc> {
+    static final int MAX_BATCH_SIZE = 1000;
+    // spreads the seeds of consecutive batches, see SplittableRandom
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    @Override
+    public void runScript(TestContext context, GeneratedDoc annotation) {
+        if (annotation.count() <= 0) return;
+
+        DocumentTemplate template = DocumentTemplate.parse(annotation.template());
+        String dbName = resolveDatabaseName(context, annotation.db());
+        MongoCollection<BsonDocument> collection = getDatabase(context, dbName)
+                .getCollection(annotation.collection(), BsonDocument.class);
+        recordSeeded(context, dbName, annotation.collection());
+
+        InsertManyOptions unordered = new InsertManyOptions().ordered(false);
+        List<Task> batches = new ArrayList<>();
+        for (long start = 0; start < annotation.count(); start += MAX_BATCH_SIZE) {
+            long first = start;
+            long end = Math.min(annotation.count(), start + MAX_BATCH_SIZE);
+            long batch = start / MAX_BATCH_SIZE;
+            batches.add(new Task(dbName + "." + annotation.collection() + "[" + first + ".." + end + ")", () -> {
+                try (Trace trace = Trace.start(context, "generate documents").database(dbName).collection(annotation.collection())) {
+                    List<BsonDocument> documents = render(template, annotation.seed(), batch, first, end);
+                    collection.insertMany(documents, unordered);
+                    trace.documents(documents.size());
+                }
+            }));
+        }
+        seedingExecution(context).invokeAll("insert generated documents into", batches);
+    }
+
+    static List<BsonDocument> render(DocumentTemplate template, long seed, long batch, long first, long end) {
+        SplittableRandom random = new SplittableRandom(seed + batch * GOLDEN_GAMMA);
+        List<BsonDocument> documents = new ArrayList<>((int) (end - first));
+        for (long index = first; index < end; index++) {
+            documents.add(template.render(index, random));
+        }
+        return documents;
+    }
+
+    @Override
+    public void cleanup(TestContext context, CleanupScope scope) {
+        // generated documents are inserted into regular collections, which are cleaned by MongoDBAnnotationHandler
+    }
+}
@@ -25,61 +25,295 @@
 package com.wholegrainsoftware.springmongotest;
 
 import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSUploadStream;
 import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.wholegrainsoftware.springmongotest.ParallelExecution.Task;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
 import org.bson.BsonObjectId;
 import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.types.ObjectId;
-import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.TestContext;
-import org.springframework.test.context.util.TestContextResourceUtils;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
 
 class GridFsAnnotationHandler implements AnnotationHandler<GridFsFile> {
-    private static final int CHUNK_SIZE = 1024;
+    private static final String DEFAULT_BUCKET = "fs";
+    static final String FILES = ".files";
+    static final String CHUNKS = ".chunks";
+    private static final String CHUNKS_KEY_PREFIX = "gridfs:";
+    private static final String ID = "_id";
+    static final String FILES_ID = "files_id";
+    static final String N = "n";
+    static final String DATA = "data";
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+    private static final Map<String, Set<String>> SEEDED_BUCKETS = new ConcurrentHashMap<>();
+    // keyed by the blocking or reactive client
+    private static final Map<Object, Set<String>> INDEXED_BUCKETS = Collections.synchronizedMap(new WeakHashMap<>());
 
     @Override
     public void runScript(TestContext context, GridFsFile annotation) {
-        Class<?> testClass = context.getTestClass();
-        ApplicationContext applicationContext = context.getApplicationContext();
+        Resource file = FixturePlan.resources(context, annotation, annotation.filePath()).get(0);
 
-        String[] fileNames = TestContextResourceUtils.convertToClasspathResourcePaths(testClass, annotation.filePath());
-        List<Resource> resources = TestContextResourceUtils.convertToResourceList(applicationContext, fileNames);
-        Resource file = resources.get(0);
+        String dbName = resolveDatabaseName(context, annotation.db());
+        int chunkSize = chunkSize(context, annotation);
+        String bucketName = annotation.bucket();
+        registerBucket(context, dbName, bucketName);
 
-        inGridFsSession(context, annotation.db(), (bucket) -> {
-            bucket.uploadFromStream(id(annotation), getName(file), getStream(file), options(annotation));
-        });
+        MongoClient client = getClient(context);
+        MongoDatabase db = getDatabase(context, dbName);
+        try (Trace ignored = Trace.start(context, "upload file").database(dbName).collection(bucketName)
+                .documents(1).bytes(contentLength(file))) {
+            List<RawBsonDocument> chunks = chunks(context, file, chunkSize);
+            // the GridFS bucket might create its indexes, which is not allowed within a transaction
+            if (chunks == null && isTransactional(context)) chunks = readChunks(file, contentLength(file), chunkSize);
+            if (chunks == null) {
+                upload(GridFSBuckets.create(db, bucketName), file, id(annotation), options(annotation, chunkSize));
+            } else {
+                ensureIndexes(client, client.getDatabase(dbName), bucketName);
+                insert(db, bucketName, annotation, getName(file), chunkSize, chunks);
+            }
+        } catch (IOException ex) {
+            throw failedToReadFile(ex);
+        }
     }
 
     @Override
-    public void cleanup(TestContext context) {
-        for (String dbName : determineDatabaseNames(context)) {
-            inGridFsSession(context, dbName, GridFSBucket::drop);
+    public void runScripts(TestContext context, List<GridFsFile> annotations) {
+        if (annotations.size() < 2) {
+            AnnotationHandler.super.runScripts(context, annotations);
+            return;
+        }
+
+        // files with the same id in the same bucket have to be uploaded in order of declaration
+        Map<String, List<GridFsFile>> groups = new LinkedHashMap<>();
+        for (GridFsFile annotation : annotations) {
+            String key = resolveDatabaseName(context, annotation.db()) + "/" + annotation.bucket() + "/" + annotation.id();
+            groups.computeIfAbsent(key, (k) -> new ArrayList<>()).add(annotation);
+        }
+        seedingExecution(context).invokeAll("upload", groups.values().stream()
+                .map((group) -> new Task(group.stream().map(GridFsFile::filePath).collect(Collectors.joining(", ")),
+                        () -> group.forEach((annotation) -> runScript(context, annotation))))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public void cleanup(TestContext context, CleanupScope scope) {
+        MongoClient client = getClient(context);
+        List<Task> deletions = new ArrayList<>();
+        for (String dbName : scope.databaseNames(context)) {
+            for (String bucket : buckets(dbName)) {
+                if (!scope.includes(dbName, bucket + FILES) && !scope.includes(dbName, bucket + CHUNKS)) continue;
+                // deleting instead of dropping keeps the indexes, which the driver would otherwise rebuild on the next upload
+                deletions.add(new Task(dbName + "." + bucket, () -> {
+                    try (Trace trace = Trace.start(context, "clean bucket").database(dbName).collection(bucket)) {
+                        MongoDatabase db = client.getDatabase(dbName);
+                        trace.documents(db.getCollection(bucket + FILES).deleteMany(new Document()).getDeletedCount());
+                        trace.documents(db.getCollection(bucket + CHUNKS).deleteMany(new Document()).getDeletedCount());
+                    }
+                }));
+            }
+        }
+        cleanupExecution(context).invokeAll("clean GridFs bucket", deletions);
+    }
+
+    static int chunkSize(TestContext context, GridFsFile annotation) {
+        if (annotation.chunkSize() > 0) return annotation.chunkSize();
+        return getProperty(context, GRIDFS_CHUNK_SIZE, Integer.class, DEFAULT_GRIDFS_CHUNK_SIZE);
+    }
+
+    static boolean isBucketCollection(String dbName, String collection) {
+        for (String bucket : buckets(dbName)) {
+            if (collection.equals(bucket + FILES) || collection.equals(bucket + CHUNKS)) return true;
         }
+        return false;
     }
 
-    private void inGridFsSession(TestContext context, String databaseName, Consumer<GridFSBucket> script) {
-        String dbName = databaseName.isEmpty() ? getDatabaseName(context) : databaseName;
-        MongoClient client = context.getApplicationContext().getBean(MongoClient.class);
-        GridFSBucket bucket = GridFSBuckets.create(client.getDatabase(dbName));
-        script.accept(bucket);
+    static void registerBucket(TestContext context, String dbName, String bucketName) {
+        SEEDED_BUCKETS.computeIfAbsent(dbName, (db) -> ConcurrentHashMap.newKeySet()).add(bucketName);
+        recordSeeded(context, dbName, bucketName + FILES);
+        recordSeeded(context, dbName, bucketName + CHUNKS);
+    }
+
+    static Set<String> buckets(String dbName) {
+        Set<String> buckets = new LinkedHashSet<>();
+        buckets.add(DEFAULT_BUCKET);
+        buckets.addAll(SEEDED_BUCKETS.getOrDefault(dbName, Collections.emptySet()));
+        return buckets;
+    }
+
+    static List<RawBsonDocument> chunks(TestContext context, Resource file, int chunkSize) {
+        long maxBytes = getProperty(context, FIXTURE_CACHE_MAX_BYTES, Long.class, FixtureCache.DEFAULT_MAX_BYTES);
+        long length = contentLength(file);
+        if (length < 0 || length > maxBytes) return null;
+
+        FixtureCache cache = FixtureCache.shared();
+        cache.setMaxBytes(maxBytes);
+        String key = cacheKey(file);
+        return cache.get(key == null ? null : CHUNKS_KEY_PREFIX + key + "#" + chunkSize, () -> {
+            List<RawBsonDocument> bundled = FixtureBundle.shared().chunks(file, chunkSize);
+            if (bundled != null) return bundled;
+            try (Trace trace = Trace.start(context, "read file chunks").bytes(length)) {
+                List<RawBsonDocument> chunks = readChunks(file, length, chunkSize);
+                trace.documents(chunks.size());
+                return chunks;
+            }
+        });
+    }
+
+    static List<RawBsonDocument> readChunks(Resource file, long length, int chunkSize) {
+        List<RawBsonDocument> chunks = new ArrayList<>();
+        try (InputStream stream = getStream(file)) {
+            for (long offset = 0; offset < length; offset += chunkSize) {
+                byte[] data = new byte[(int) Math.min(chunkSize, length - offset)];
+                if (readFully(stream, data) < data.length) throw failedToReadFile(new EOFException());
+                chunks.add(chunk(chunks.size(), data));
+            }
+        } catch (IOException ex) {
+            throw failedToReadFile(ex);
+        }
+        return chunks;
+    }
+
+    /**
+     * Reads at most {@code count} chunks of the stream, numbered from {@code n}. Only the last chunk of the
+     * stream may be shorter than {@code chunkSize}.
+     */
+    static List<RawBsonDocument> readChunks(InputStream stream, int n, int count, int chunkSize) throws IOException {
+        List<RawBsonDocument> chunks = new ArrayList<>();
+        byte[] data = new byte[chunkSize];
+        for (int read = chunkSize; chunks.size() < count && read == chunkSize; ) {
+            read = readFully(stream, data);
+            if (read > 0) chunks.add(chunk(n + chunks.size(), Arrays.copyOf(data, read)));
+        }
+        return chunks;
+    }
+
+    private static RawBsonDocument chunk(int n, byte[] data) {
+        return new RawBsonDocument(new BsonDocument(N, new BsonInt32(n)).append(DATA, new BsonBinary(data)), CODEC);
+    }
+
+    private void insert(MongoDatabase db, String bucketName, GridFsFile annotation, String filename, int chunkSize,
+                        List<RawBsonDocument> chunks) {
+        BsonValue id = id(annotation);
+        // chunks first, so that a file is never visible without its content
+        if (!chunks.isEmpty()) {
+            db.getCollection(bucketName + CHUNKS, RawBsonDocument.class).insertMany(chunkDocuments(id, chunks));
+        }
+        db.getCollection(bucketName + FILES).insertOne(filesDocument(annotation, id, filename, chunkSize, chunks));
+    }
+
+    static List<RawBsonDocument> chunkDocuments(BsonValue id, List<RawBsonDocument> chunks) {
+        List<RawBsonDocument> documents = new ArrayList<>(chunks.size());
+        for (RawBsonDocument chunk : chunks) {
+            BsonDocument document = new BsonDocument(ID, new BsonObjectId()).append(FILES_ID, id)
+                    .append(N, chunk.get(N)).append(DATA, chunk.getBinary(DATA));
+            documents.add(new RawBsonDocument(document, CODEC));
+        }
+        return documents;
+    }
+
+    static Document filesDocument(GridFsFile annotation, BsonValue id, String filename, int chunkSize, List<RawBsonDocument> chunks) {
+        // every chunk but the last one is full
+        long length = chunks.isEmpty() ? 0 : (long) (chunks.size() - 1) * chunkSize
+                + chunks.get(chunks.size() - 1).getBinary(DATA).getData().length;
+        return filesDocument(annotation, id, filename, chunkSize, length);
+    }
+
+    static Document filesDocument(GridFsFile annotation, BsonValue id, String filename, int chunkSize, long length) {
+        return new Document(ID, id)
+                .append("length", length)
+                .append("chunkSize", chunkSize)
+                .append("uploadDate", new Date())
+                .append("filename", filename)
+                .append("metadata", Document.parse(annotation.metadata()));
+    }
+
+    static boolean markIndexed(Object client, String dbName, String bucketName) {
+        return INDEXED_BUCKETS.computeIfAbsent(client, (c) -> ConcurrentHashMap.newKeySet()).add(dbName + "." + bucketName);
+    }
+
+    private void ensureIndexes(MongoClient client, MongoDatabase db, String bucketName) {
+        if (!markIndexed(client, db.getName(), bucketName)) return;
+        db.getCollection(bucketName + FILES).createIndex(Indexes.ascending("filename", "uploadDate"));
+        db.getCollection(bucketName + CHUNKS).createIndex(Indexes.ascending(FILES_ID, N), new IndexOptions().unique(true));
+    }
+
+    private static int readFully(InputStream stream, byte[] bytes) throws IOException {
+        int total = 0;
+        for (int read = 0; total < bytes.length && read != -1; total += Math.max(0, read)) {
+            read = stream.read(bytes, total, bytes.length - total);
+        }
+        return total;
+    }
+
+    static void upload(GridFSBucket bucket, Resource file, BsonValue id, GridFSUploadOptions options) throws IOException {
+        if (!file.isFile()) {
+            try (InputStream stream = getStream(file)) {
+                bucket.uploadFromStream(id, getName(file), stream, options);
+            }
+            return;
+        }
+
+        int chunkSize = options.getChunkSizeBytes();
+        // a single chunk per upload, which is garbage right after the upload instead of staying with its thread
+        byte[] chunk = new byte[chunkSize];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        try (FileChannel channel = FileChannel.open(file.getFile().toPath(), StandardOpenOption.READ)) {
+            GridFSUploadStream upload = bucket.openUploadStream(id, getName(file), options);
+            try {
+                while (channel.read(buffer) != -1) {
+                    if (buffer.hasRemaining()) continue;
+                    upload.write(chunk, 0, buffer.position());
+                    buffer.clear();
+                }
+                if (buffer.position() > 0) upload.write(chunk, 0, buffer.position());
+            } catch (IOException | RuntimeException ex) {
+                // closing the stream would write the files document of a partially uploaded file
+                upload.abort();
+                throw ex;
+            }
+            upload.close();
+        }
     }
 
-    private BsonValue id(GridFsFile annotation) {
+    static BsonValue id(GridFsFile annotation) {
         return new BsonObjectId(new ObjectId(annotation.id()));
     }
 
-    private GridFSUploadOptions options(GridFsFile annotation) {
+    private GridFSUploadOptions options(GridFsFile annotation, int chunkSize) {
         return new GridFSUploadOptions()
-                .chunkSizeBytes(CHUNK_SIZE)
+                .chunkSizeBytes(chunkSize)
                 .metadata(Document.parse(annotation.metadata()));
     }
 }
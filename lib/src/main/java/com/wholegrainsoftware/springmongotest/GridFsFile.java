@@ -64,4 +64,19 @@ public @interface GridFsFile {
      * <i>Optional</i> metadata that can be added to the file in GridFs.
      */
     String metadata() default "{}";
+
+    /**
+     * <i>Optional</i> name of the GridFs bucket the file should be inserted into.
+     *
+     * @since 1.3.0
+     */
+    String bucket() default "fs";
+
+    /**
+     * <i>Optional</i> size of the chunks in bytes. Defaults to the property
+     * {@code spring-mongodb-test.gridfs.chunk-size} or the driver default of 255 KB.
+     *
+     * @since 1.3.0
+     */
+    int chunkSize() default -1;
 }
@@ -24,61 +24,161 @@
 
 package com.wholegrainsoftware.springmongotest;
 
-import com.mongodb.client.ClientSession;
-import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.wholegrainsoftware.springmongotest.ParallelExecution.Task;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.conversions.Bson;
-import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.TestContext;
-import org.springframework.test.context.util.TestContextResourceUtils;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
 
 class MongoDBAnnotationHandler implements AnnotationHandler<Doc> {
     private static final List<String> EXCLUDED_DB_NAMES = Arrays.asList("config", "admin", "local");
+    private static final String ID = "_id";
 
     @Override
     public void runScript(TestContext context, Doc annotation) {
-        Class<?> testClass = context.getTestClass();
-        ApplicationContext applicationContext = context.getApplicationContext();
+        List<RawBsonDocument> documents = documents(context, annotation);
+        if (documents.isEmpty()) return;
 
-        String[] fileNames = TestContextResourceUtils.convertToClasspathResourcePaths(testClass, annotation.files());
-        List<Resource> resources = TestContextResourceUtils.convertToResourceList(applicationContext, fileNames);
-        List<Document> documents = resources.stream()
-                .map((res) -> Document.parse(read(res)))
-                .collect(Collectors.toList());
+        inDbSession(context, annotation.db(), (db) -> {
+            recordSeeded(context, db.getName(), annotation.collection());
+            // the driver splits the documents into batches that fit the limits of the server
+            try (Trace ignored = Trace.start(context, "insert documents").database(db.getName()).collection(annotation.collection())
+                    .documents(documents.size()).bytes(size(documents))) {
+                db.getCollection(annotation.collection(), RawBsonDocument.class).insertMany(documents);
+            }
+        });
+    }
+
+    @Override
+    public void runScripts(TestContext context, List<Doc> annotations) {
+        boolean templates = FixtureTemplates.isEnabled(context);
+        if (annotations.size() < 2 && !templates) {
+            AnnotationHandler.super.runScripts(context, annotations);
+            return;
+        }
 
-        inDbSession(context, annotation.db(), (db) -> db.getCollection(annotation.collection()).insertMany(documents));
+        // documents of the same collection have to be inserted in order of declaration
+        Map<String, List<Doc>> groups = new LinkedHashMap<>();
+        for (Doc annotation : annotations) {
+            String key = resolveDatabaseName(context, annotation.db()) + "." + annotation.collection();
+            groups.computeIfAbsent(key, (k) -> new ArrayList<>()).add(annotation);
+        }
+        seedingExecution(context).invokeAll("insert documents into", groups.entrySet().stream()
+                .map((group) -> new Task(group.getKey(), () -> {
+                    Doc first = group.getValue().get(0);
+                    String dbName = resolveDatabaseName(context, first.db());
+                    if (templates && FixtureTemplates.seed(context, dbName, first.collection(), group.getValue())) return;
+                    group.getValue().forEach((annotation) -> runScript(context, annotation));
+                }))
+                .collect(Collectors.toList()));
     }
 
     @Override
-    public void cleanup(TestContext context) {
-        for (String dbName : determineDatabaseNames(context)) {
-            inDbSession(context, dbName, (db) -> db.listCollectionNames().forEach((name) -> db.getCollection(name).deleteMany(all())));
+    public void cleanup(TestContext context, CleanupScope scope) {
+        ParallelExecution execution = cleanupExecution(context);
+        List<String> dbNames = scope.databaseNames(context);
+        Map<String, List<String>> collections = new ConcurrentHashMap<>();
+        execution.invokeAll("list collections of", dbNames.stream()
+                .map((dbName) -> new Task(dbName, () -> inDbSession(context, dbName, (db) -> {
+                    try (Trace ignored = Trace.start(context, "list collections").database(dbName)) {
+                        collections.put(dbName, StreamSupport.stream(scope.collectionNames(db).spliterator(), false).collect(Collectors.toList()));
+                    }
+                })))
+                .collect(Collectors.toList()));
+
+        CleanupStrategy strategy = getCleanupStrategy(context);
+        long dropThreshold = getProperty(context, CLEANUP_DROP_THRESHOLD, Long.class, DEFAULT_DROP_THRESHOLD);
+        List<Task> deletions = new ArrayList<>();
+        for (String dbName : dbNames) {
+            for (String name : collections.get(dbName)) {
+                if (GridFsAnnotationHandler.isBucketCollection(dbName, name)) continue;
+                deletions.add(new Task(dbName + "." + name, () -> inDbSession(context, dbName, (db) -> {
+                    try (Trace trace = Trace.start(context, "clean collection").database(dbName).collection(name)) {
+                        clean(db, name, strategy, dropThreshold, trace);
+                    }
+                })));
+            }
         }
+        execution.invokeAll("clean", deletions);
+    }
+
+    static void clean(MongoDatabase db, String name, CleanupStrategy strategy, long dropThreshold, Trace trace) {
+        MongoCollection<Document> collection = db.getCollection(name);
+        if (strategy == CleanupStrategy.DROP_AND_RESTORE) {
+            CollectionDefinition definition = CollectionDefinition.of(db, name);
+            long count = definition != null && definition.isDroppable() ? collection.estimatedDocumentCount() : 0;
+            if (count >= dropThreshold && count > 0) {
+                definition.dropAndRestore(db);
+                trace.documents(count);
+                return;
+            }
+        }
+        trace.documents(collection.deleteMany(all()).getDeletedCount());
     }
 
     private void inDbSession(TestContext context, String databaseName, Consumer<MongoDatabase> script) {
-        String dbName = databaseName.isEmpty() ? getDatabaseName(context) : databaseName;
-        MongoClient client = context.getApplicationContext().getBean(MongoClient.class);
-        MongoDatabase database = client.getDatabase(dbName);
-        ClientSession session = client.startSession();
-        script.accept(database);
-        session.close();
+        script.accept(getDatabase(context, resolveDatabaseName(context, databaseName)));
     }
 
-    private Bson all() {
+    private static Bson all() {
         return new Document();
     }
 
-    private String read(Resource resource) {
-        return asString(resource);
+    static List<RawBsonDocument> documents(TestContext context, Doc annotation) {
+        return declaredDocuments(context, annotation).stream()
+                .map(MongoDBAnnotationHandler::withId)
+                .collect(Collectors.toList());
+    }
+
+    static List<RawBsonDocument> declaredDocuments(TestContext context, Doc annotation) {
+        List<Resource> resources = FixturePlan.resources(context, annotation, annotation.files());
+        FixtureCache cache = FixtureCache.shared();
+        cache.setMaxBytes(getProperty(context, FIXTURE_CACHE_MAX_BYTES, Long.class, FixtureCache.DEFAULT_MAX_BYTES));
+        return resources.stream()
+                .flatMap((res) -> cache.get(cacheKey(res), () -> read(context, res)).stream())
+                .collect(Collectors.toList());
+    }
+
+    private static List<RawBsonDocument> read(TestContext context, Resource resource) {
+        List<RawBsonDocument> bundled = FixtureBundle.shared().documents(resource);
+        if (bundled != null) return bundled;
+        try (Trace trace = Trace.start(context, "parse fixture")) {
+            List<RawBsonDocument> documents = FixtureReader.read(resource);
+            trace.documents(documents.size()).bytes(size(documents));
+            return documents;
+        } catch (IOException ex) {
+            throw failedToReadFile(ex);
+        }
+    }
+
+    private static long size(List<RawBsonDocument> documents) {
+        return documents.stream().mapToLong((document) -> document.getByteBuffer().remaining()).sum();
+    }
+
+    private static RawBsonDocument withId(RawBsonDocument document) {
+        if (document.containsKey(ID)) return document;
+        BsonDocument copy = new BsonDocument(ID, new BsonObjectId());
+        copy.putAll(document);
+        return new RawBsonDocument(copy, new BsonDocumentCodec());
     }
 }
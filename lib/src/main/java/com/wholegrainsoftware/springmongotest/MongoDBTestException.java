@@ -24,7 +24,10 @@
 
 package com.wholegrainsoftware.springmongotest;
 
+import com.mongodb.MongoException;
+
 import java.io.IOException;
+import java.util.List;
 
 import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.MONGODB_DATABASE;
 import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.MONGODB_URI;
@@ -48,7 +51,56 @@ public class MongoDBTestException extends RuntimeException {
         return new MongoDBTestException("Failed to read file.", ex);
     }
 
+    public static MongoDBTestException malformedBson(int offset) {
+        return new MongoDBTestException("Failed to read BSON document at offset " + offset + ".");
+    }
+
+    public static MongoDBTestException malformedJson(long offset) {
+        return new MongoDBTestException("Failed to read JSON document at offset " + offset + ".");
+    }
+
+    public static MongoDBTestException invalidFixtureBundle(String location) {
+        return new MongoDBTestException("Unsupported fixture bundle " + location + ".");
+    }
+
+    public static MongoDBTestException invalidFixtures(List<String> problems) {
+        return new MongoDBTestException("Invalid fixtures:\n  " + String.join("\n  ", problems));
+    }
+
+    public static MongoDBTestException invalidPlaceholder(String placeholder) {
+        return new MongoDBTestException("Invalid placeholder " + placeholder + " in document template.");
+    }
+
     public static MongoDBTestException fileNameShouldNotBeNull() {
         return new MongoDBTestException("Filename should not be null.");
     }
+
+    public static MongoDBTestException failedTasks(String operation, List<String> descriptions, List<RuntimeException> causes) {
+        MongoDBTestException ex = new MongoDBTestException("Failed to " + operation + " " + String.join(", ", descriptions) + ".", causes.get(0));
+        causes.stream().skip(1).forEach(ex::addSuppressed);
+        return ex;
+    }
+
+    public static MongoDBTestException failedToRecycle(String dbName, RuntimeException ex) {
+        return new MongoDBTestException("Failed to recycle pooled database " + dbName + ".", ex);
+    }
+
+    public static MongoDBTestException failedAsyncCleanup(Throwable cause) {
+        if (cause instanceof MongoDBTestException) return (MongoDBTestException) cause;
+        MongoDBTestException ex = new MongoDBTestException("Failed to clean up after the previous test.");
+        ex.initCause(cause);
+        return ex;
+    }
+
+    public static MongoDBTestException missingDatabaseFactory() {
+        return new MongoDBTestException("Failed to roll back tests. A MongoTransactionManager or MongoDatabaseFactory bean is required.");
+    }
+
+    public static MongoDBTestException changeStreamsUnsupported(MongoException ex) {
+        return new MongoDBTestException("Failed to open a change stream. Tracking writes with change streams requires a replica set.", ex);
+    }
+
+    public static MongoDBTestException interrupted(InterruptedException ex) {
+        return new MongoDBTestException("Interrupted while waiting for the database.", ex);
+    }
 }
@@ -24,13 +24,19 @@
 
 package com.wholegrainsoftware.springmongotest;
 
+import com.mongodb.MongoNamespace;
 import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestContext;
 import org.springframework.test.context.support.AbstractTestExecutionListener;
 
 import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+
 /**
  * {@code TestExecutionListener} that provides support for inserting documents and
  * files into mongodb as well as cleanup.
@@ -49,12 +55,20 @@ import java.util.Set;
  *     <li>delete all documents from all collections in the given database.</li>
  *     <li>delete all files from GridFs in the given database.</li>
  * </ul>
+ * <p>If a {@link NamespaceTracker} bean is available, only the namespaces that have been seeded or written
+ * since the previous cleanup are cleaned. The property {@code spring-mongodb-test.cleanup.mode=exhaustive}
+ * restores the full sweep.</p>
  *
  * <h3>Document Insertion</h3>
  * If a test class or test method is annotated with {@link Doc}, the listener will
  * retrieve the given files and insert them into the defined collection. This will happen
  * for each {@link Doc} and {@link Docs} annotation found.
  *
+ * <h3>Document Generation</h3>
+ * If a test class or test method is annotated with {@link GeneratedDoc}, the listener will render the
+ * given number of documents from the template and insert them in unordered batches over several
+ * connections. This will happen for each {@link GeneratedDoc} and {@link GeneratedDocs} annotation found.
+ *
  * <h3>File Insertion</h3>
  * If a test class or test method is annotated with {@link GridFsFile}, the listener will
  * insert the given files into GridFS with the defined id as well as optional metadata. This
@@ -63,6 +77,23 @@ import java.util.Set;
  * <h3>Order of Insertion</h3>
  * Annotations at class-level are handled before annotations at method-level.
  * Annotation on the same level are handling in order of declaration.
+ * {@link Doc} annotations of different collections are inserted concurrently, documents of the same collection
+ * are inserted in order of declaration. {@link GridFsFile} annotations are uploaded concurrently, only files with
+ * the same id in the same database are uploaded in order of declaration.
+ * If the property {@code spring-mongodb-test.virtual-threads.enabled} is set to {@code true} and the JVM supports
+ * virtual threads, the inserts, uploads and cleanups run on virtual threads instead of pooled platform threads.
+ * Their number is still limited by the {@code parallelism} properties and the {@code maxPoolSize}.
+ *
+ * <h3>Skipping Unchanged Fixtures</h3>
+ * If the property {@code spring-mongodb-test.reseed.skip-unchanged} is set to {@code true}, the listener
+ * records a fingerprint of the declared fixtures and a {@code dbHash} of every database after seeding. A
+ * following test that declares the same fixtures and finds all databases unchanged will skip the cleanup
+ * and insertion entirely. This requires a deployment that supports the {@code dbHash} command.
+ *
+ * <h3>Profiling</h3>
+ * Every phase of the listener, e.g. resolving resources, parsing fixtures, inserting documents, uploading
+ * files and cleaning collections, is recorded as a {@code com.wholegrainsoftware.springmongotest.Phase}
+ * Java Flight Recorder event, if the JVM supports JFR and a recording is running.
  *
  * <h3>Activation</h3>
  * Activating the TestExecutionListener can be achieved by the following statement:
@@ -73,12 +104,65 @@ import java.util.Set;
  * )
  * </pre>
  *
- * <b>Note</b>: This {@code TestExecutionListener} has only been tested with sequential test execution. Using
- * parallel test execution might introduce unintended side effects.
+ * <h3>Database Pool</h3>
+ * If a {@link DatabasePool} bean is present, every test rents a clean database from the pool, into which
+ * all annotations without an explicit {@code db} are inserted. After the test the database is recycled in
+ * the background, so only databases outside of the pool are cleaned before the test.
+ *
+ * <h3>Asynchronous Cleanup</h3>
+ * If the property {@code spring-mongodb-test.cleanup.async} is set to {@code true}, the cleanup starts on a
+ * background thread as soon as a test method has finished and overlaps with the creation of the next test
+ * instance. The next test waits for it to complete before anything is inserted. Tests annotated with
+ * {@link DirtiesContext} are cleaned up synchronously, since their application context is closed afterwards.
+ *
+ * <h3>Reactive Applications</h3>
+ * If the application context only contains a {@code com.mongodb.reactivestreams.client.MongoClient}, the
+ * documents and files of all annotations are inserted through the reactive driver at once and the listener
+ * blocks only until all of them are written. Annotations are therefore not inserted in order of declaration.
+ * Skipping unchanged fixtures as well as the {@code drop-and-restore} and {@code rollback} cleanup
+ * strategies require a blocking {@code MongoClient}, reactive applications are always cleaned with deletes.
+ *
+ * <h3>Transaction Rollback</h3>
+ * If the property {@code spring-mongodb-test.cleanup.strategy} is set to {@code rollback}, nothing is
+ * deleted. Instead, the documents and files are inserted within a transaction of the
+ * {@code MongoTransactionManager} bean, or of one created for the {@code MongoDatabaseFactory} bean, which
+ * is rolled back after the test. Operations of the test thread join this transaction, operations of other
+ * threads are neither isolated nor cleaned up. Only the first test that uses a transaction for a
+ * {@code MongoClient} cleans all collections once. This requires a replica set and, for collections that do
+ * not exist yet, MongoDB 4.4.
+ *
+ * <h3>Change Stream Tracking</h3>
+ * If the property {@code spring-mongodb-test.tracking.change-streams} is set to {@code true}, a change stream
+ * on the {@code MongoClient} records every collection written after seeding, regardless of the thread or
+ * client that wrote it. Before the next test, only these collections and collections with different fixtures
+ * are cleaned and reseeded. The written collections are exposed through the {@link #TOUCHED_NAMESPACES}
+ * attribute after each test. This requires a replica set and is not used together with a database pool,
+ * the {@code rollback} cleanup strategy or reactive applications.
+ *
+ * If additionally {@code spring-mongodb-test.reseed.incremental} is set to {@code true}, untouched
+ * collections that are declared with other fixtures are not cleaned. Only the documents whose {@code _id} or
+ * content differs from the previous fixtures are deleted, replaced or inserted.
+ *
+ * <h3>Worker Isolation</h3>
+ * If the property {@code spring-mongodb-test.isolation.enabled} is set to {@code true}, every test JVM
+ * gets its own databases. The worker id is taken from {@code spring-mongodb-test.isolation.worker-id} or
+ * the {@code org.gradle.test.worker} system property and appended as {@code _worker<id>} to
+ * {@code spring.data.mongodb.database} as well as to the {@code db} of {@link Doc} and {@link GridFsFile}.
+ * The full cleanup sweep only touches databases of the current worker, so test forks, e.g. Gradle's
+ * {@code maxParallelForks}, can share a single MongoDB deployment. The suffix is published as
+ * {@code spring-mongodb-test.isolation.suffix}, so that the application can append it to every other
+ * database name it uses, e.g. {@code product_db${spring-mongodb-test.isolation.suffix:}}. Databases without
+ * the suffix are neither seeded nor cleaned while isolation is enabled.
+ *
+ * <b>Note</b>: Isolation works per JVM, since the application context and its {@code MongoClient} are shared
+ * by all test classes of a fork. Parallel test execution within a single JVM might still introduce
+ * unintended side effects.
  *
  * @author Jimi Steidl
  * @see Doc
  * @see Docs
+ * @see GeneratedDoc
+ * @see GeneratedDocs
  * @see GridFsFile
  * @see GridFsFiles
  * @see MongoDBTest
@@ -86,34 +170,178 @@ import java.util.Set;
  * @since 0.0.1
  */
 public class MongoDBTestExecutionListener extends AbstractTestExecutionListener {
+    /**
+     * Name of the {@code TestContext} attribute that holds the {@code Set<MongoNamespace>} a test has written
+     * to, if {@code spring-mongodb-test.tracking.change-streams} is enabled.
+     */
+    public static final String TOUCHED_NAMESPACES = "com.wholegrainsoftware.springmongotest.touchedNamespaces";
     private final MongoDBAnnotationHandler mongoDB = new MongoDBAnnotationHandler();
+    private final GeneratedDocAnnotationHandler generated = new GeneratedDocAnnotationHandler();
     private final GridFsAnnotationHandler gridFs = new GridFsAnnotationHandler();
 
     @Override
     public void beforeTestMethod(TestContext context) {
+        // only the test right after the cleanup may rely on it, a test without the annotation may write anything
+        boolean cleanedAfterPreviousTest = AsyncCleanup.consume(context.getApplicationContext());
+        if (hasMongoDbTestAnnotation(context)) {
+            AsyncCleanup.await();
+            context.removeAttribute(TOUCHED_NAMESPACES);
+            FixturePlan plan = FixturePlan.of(context);
+            context.setAttribute(FixturePlan.ATTRIBUTE, plan);
+            // a rented or rolled back database is always clean, so there is nothing to compare against
+            boolean skipUnchanged = plan.pool() == null && !isRollback(context, plan) && !plan.isReactive()
+                    && !isTrackingChanges(context, plan) && getProperty(context, SKIP_UNCHANGED_RESEED, Boolean.class, false);
+            if (skipUnchanged && FixtureSnapshot.isUnchanged(context, plan.fingerprint())) return;
+
+            FixtureSnapshot.invalidate();
+            untracked(plan, () -> cleanupAndSeed(context, plan, cleanedAfterPreviousTest));
+            if (skipUnchanged) FixtureSnapshot.record(context, plan.fingerprint());
+        }
+    }
+
+    @Override
+    public void afterTestMethod(TestContext context) {
         if (hasMongoDbTestAnnotation(context)) {
-            executeCleanup(context, mongoDB);
-            executeCleanup(context, gridFs);
+            FixturePlan plan = FixturePlan.current(context);
+            if (isTransactional(context)) TransactionIsolation.rollback(context);
+            context.removeAttribute(Subscriptions.ATTRIBUTE);
+            context.removeAttribute(FixturePlan.ATTRIBUTE);
+            if (plan == null) return;
+            DatabasePool pool = plan.pool();
+            if (pool != null) pool.release();
+            boolean rollback = isRollback(context, plan);
+            if (isTrackingChanges(context, plan)) {
+                recordTouchedNamespaces(context);
+                return;
+            }
+            if (!rollback && getProperty(context, CLEANUP_ASYNC, Boolean.class, false)) cleanupAfterTest(context, plan, pool);
+        }
+    }
+
+    @Override
+    public void afterTestClass(TestContext context) {
+        AsyncCleanup.await();
+    }
+
+    private void cleanupAndSeed(TestContext context, FixturePlan plan, boolean cleanedAfterPreviousTest) {
+        DatabasePool pool = plan.pool();
+        boolean reactive = plan.isReactive();
+        boolean rollback = isRollback(context, plan);
+        boolean tracking = isTrackingChanges(context, plan);
+        List<Doc> docs = plan.docs();
+        ChangeStreamTracker changes = tracking ? ChangeStreamTracker.of(context) : null;
+        if (rollback || tracking) {
+            // everything written within the transaction disappears with it, or is known from the change stream
+            if (plan.tracker() != null) plan.tracker().drain();
+        }
+        if (tracking) {
+            docs = changes.cleanup(context, plan, (scope) -> {
+                executeCleanup(context, mongoDB, scope);
+                executeCleanup(context, gridFs, scope);
+            });
+        } else if (!rollback) {
+            CleanupScope scope = cleanupScope(context, plan.tracker(), pool);
+            if (!cleanedAfterPreviousTest || !scope.isExhaustive()) {
+                executeCleanup(context, mongoDB(reactive), scope);
+                executeCleanup(context, gridFs(reactive), scope);
+            }
+        } else if (TransactionIsolation.sweepRequired(plan.client())) {
+            executeCleanup(context, mongoDB, CleanupScope.exhaustive());
+            executeCleanup(context, gridFs, CleanupScope.exhaustive());
+        }
+        if (pool != null) pool.rent();
+        if (rollback) TransactionIsolation.begin(context);
+
+        executePreparation(context, mongoDB(reactive), docs);
+        executePreparation(context, generated(reactive), plan.generatedDocs());
+        executePreparation(context, gridFs(reactive), plan.files());
+        if (reactive) Subscriptions.await(context, "seed");
+        if (tracking) changes.seeded();
+    }
+
+    private void cleanupAfterTest(TestContext context, FixturePlan plan, DatabasePool pool) {
+        FixtureSnapshot.invalidate();
+        CleanupScope scope = cleanupScope(context, plan.tracker(), pool);
+        TestContext detached = new DetachedTestContext(context);
+        Runnable cleanup = () -> untracked(plan, () -> {
+            executeCleanup(detached, mongoDB(plan.isReactive()), scope);
+            executeCleanup(detached, gridFs(plan.isReactive()), scope);
+        });
+        // the application context might be closed right after this test, so it has to be cleaned up now
+        if (isDirtiesContext(context)) {
+            cleanup.run();
+        } else {
+            AsyncCleanup.submit(context.getApplicationContext(), cleanup);
+        }
+    }
 
-            executePreparation(context, mongoDB, Doc.class);
-            executePreparation(context, gridFs, GridFsFile.class);
+    private void untracked(FixturePlan plan, Runnable action) {
+        NamespaceTracker tracker = plan.tracker();
+        if (tracker == null) {
+            action.run();
+        } else {
+            tracker.untracked(action);
         }
     }
 
-    private <T extends Annotation> void executePreparation(TestContext context, AnnotationHandler<T> preparator, Class<T> clazz) {
-        Set<T> ca = AnnotatedElementUtils.getMergedRepeatableAnnotations(context.getTestClass(), clazz);
-        Set<T> ma = AnnotatedElementUtils.getMergedRepeatableAnnotations(context.getTestMethod(), clazz);
+    private boolean isRollback(TestContext context, FixturePlan plan) {
+        return !plan.isReactive() && getCleanupStrategy(context) == CleanupStrategy.ROLLBACK;
+    }
+
+    private boolean isTrackingChanges(TestContext context, FixturePlan plan) {
+        // rented, rolled back and reactively seeded databases are never reseeded selectively
+        return !plan.isReactive() && plan.pool() == null && getCleanupStrategy(context) != CleanupStrategy.ROLLBACK
+                && ChangeStreamTracker.isEnabled(context);
+    }
+
+    private void recordTouchedNamespaces(TestContext context) {
+        Set<MongoNamespace> touched = ChangeStreamTracker.of(context).touched(context);
+        context.setAttribute(TOUCHED_NAMESPACES, Collections.unmodifiableSet(touched));
+    }
+
+    private AnnotationHandler<Doc> mongoDB(boolean reactive) {
+        return reactive ? Reactive.MONGO_DB : mongoDB;
+    }
+
+    private AnnotationHandler<GeneratedDoc> generated(boolean reactive) {
+        return reactive ? Reactive.GENERATED : generated;
+    }
+
+    private AnnotationHandler<GridFsFile> gridFs(boolean reactive) {
+        return reactive ? Reactive.GRID_FS : gridFs;
+    }
+
+    private boolean isDirtiesContext(TestContext context) {
+        return AnnotatedElementUtils.hasAnnotation(context.getTestMethod(), DirtiesContext.class) ||
+                AnnotatedElementUtils.hasAnnotation(context.getTestClass(), DirtiesContext.class);
+    }
+
+    private <T extends Annotation> void executePreparation(TestContext context, AnnotationHandler<T> preparator, List<T> annotations) {
+        preparator.runScripts(context, annotations);
+    }
 
-        ca.forEach(a -> preparator.runScript(context, a));
-        ma.forEach(a -> preparator.runScript(context, a));
+    private <T extends Annotation> void executeCleanup(TestContext context, AnnotationHandler<T> preparator, CleanupScope scope) {
+        preparator.cleanup(context, scope);
     }
 
-    private <T extends Annotation> void executeCleanup(TestContext context, AnnotationHandler<T> preparator) {
-        preparator.cleanup(context);
-        preparator.cleanup(context);
+    private CleanupScope cleanupScope(TestContext context, NamespaceTracker tracker, DatabasePool pool) {
+        if (tracker == null) return CleanupScope.exhaustive();
+
+        List<MongoNamespace> written = tracker.drain();
+        if (pool != null) written.removeIf((namespace) -> pool.contains(namespace.getDatabaseName()));
+        boolean exhaustive = EXHAUSTIVE_CLEANUP.equals(getProperty(context, CLEANUP_MODE, String.class, ""));
+        if (exhaustive || tracker.sweepRequired()) return CleanupScope.exhaustive();
+        return CleanupScope.of(written);
     }
 
     private boolean hasMongoDbTestAnnotation(TestContext context) {
         return context.getTestMethod().isAnnotationPresent(MongoDBTest.class);
     }
+
+    // initialized on first use, so that only reactive applications need the reactive driver
+    private static class Reactive {
+        private static final AnnotationHandler<Doc> MONGO_DB = new ReactiveMongoDBAnnotationHandler();
+        private static final AnnotationHandler<GeneratedDoc> GENERATED = new ReactiveGeneratedDocAnnotationHandler();
+        private static final AnnotationHandler<GridFsFile> GRID_FS = new ReactiveGridFsAnnotationHandler();
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code NamespaceTracker} is a {@link CommandListener} that records every namespace a
+ * {@link com.mongodb.client.MongoClient} writes to.
+ *
+ * <p>If a {@code NamespaceTracker} bean is present in the application context, the
+ * {@link MongoDBTestExecutionListener} only cleans the namespaces that have been seeded or written
+ * since the previous cleanup instead of sweeping all collections of all databases. The very first
+ * cleanup is always a full sweep. The tracker has to be registered with the client, e.g. with Spring Boot:</p>
+ * <pre>
+ * &#64;Bean
+ * public NamespaceTracker namespaceTracker() {
+ *     return new NamespaceTracker();
+ * }
+ *
+ * &#64;Bean
+ * public MongoClientSettingsBuilderCustomizer trackNamespaces(NamespaceTracker tracker) {
+ *     return (settings) -&gt; settings.addCommandListener(tracker);
+ * }
+ * </pre>
+ *
+ * <p>The writes of the listener itself, i.e. its cleanup and seeding, are not recorded. Only the seeded
+ * namespaces are, so that they are cleaned before the next test. Writes of other threads while the listener
+ * cleans or seeds, e.g. during an asynchronous cleanup, are not recorded either.</p>
+ *
+ * <p>Setting the property {@code spring-mongodb-test.cleanup.mode} to {@code exhaustive} falls back to
+ * the full sweep even if a tracker is present.</p>
+ *
+ * @author Jimi Steidl
+ * @see MongoDBTestExecutionListener
+ * @since 1.3.0
+ */
+public class NamespaceTracker implements CommandListener {
+    private static final Set<String> WRITE_COMMANDS = new HashSet<>(Arrays.asList(
+            "insert", "update", "delete", "findAndModify", "findandmodify", "create", "createIndexes"
+    ));
+    private static final String AGGREGATE = "aggregate";
+    private static final String RENAME_COLLECTION = "renameCollection";
+
+    private final Set<MongoNamespace> namespaces = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean swept = new AtomicBoolean();
+    private final AtomicInteger suspensions = new AtomicInteger();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (suspensions.get() > 0) return;
+        String command = event.getCommandName();
+        BsonDocument body = event.getCommand();
+        if (WRITE_COMMANDS.contains(command)) {
+            record(event.getDatabaseName(), body.get(command));
+        } else if (AGGREGATE.equals(command)) {
+            recordAggregationTarget(event.getDatabaseName(), body);
+        } else if (RENAME_COLLECTION.equals(command)) {
+            BsonValue target = body.get("to");
+            if (target != null && target.isString()) record(new MongoNamespace(target.asString().getValue()));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+    }
+
+    /**
+     * Returns a copy of the namespaces that have been written since the last cleanup.
+     */
+    public Set<MongoNamespace> getNamespaces() {
+        return new HashSet<>(namespaces);
+    }
+
+    void record(MongoNamespace namespace) {
+        namespaces.add(namespace);
+    }
+
+    List<MongoNamespace> drain() {
+        List<MongoNamespace> drained = new ArrayList<>();
+        for (MongoNamespace namespace : namespaces) {
+            if (namespaces.remove(namespace)) drained.add(namespace);
+        }
+        return drained;
+    }
+
+    /**
+     * Runs {@code action} without recording the namespaces it writes to. The deletes of a cleanup would
+     * otherwise mark every cleaned collection as written and have it cleaned again before the next test.
+     */
+    void untracked(Runnable action) {
+        suspensions.incrementAndGet();
+        try {
+            action.run();
+        } finally {
+            suspensions.decrementAndGet();
+        }
+    }
+
+    boolean sweepRequired() {
+        return swept.compareAndSet(false, true);
+    }
+
+    private void recordAggregationTarget(String databaseName, BsonDocument body) {
+        BsonValue pipeline = body.get("pipeline");
+        if (pipeline == null || !pipeline.isArray()) return;
+        BsonArray stages = pipeline.asArray();
+        if (stages.isEmpty() || !stages.get(stages.size() - 1).isDocument()) return;
+
+        BsonDocument stage = stages.get(stages.size() - 1).asDocument();
+        BsonValue target = stage.containsKey("$out") ? stage.get("$out") : stage.get("$merge");
+        if (target == null) return;
+        if (target.isString()) {
+            record(databaseName, target);
+        } else if (target.isDocument()) {
+            BsonDocument spec = target.asDocument();
+            BsonValue into = spec.containsKey("into") ? spec.get("into") : spec;
+            if (into.isString()) {
+                record(databaseName, into);
+            } else if (into.isDocument()) {
+                String db = into.asDocument().getString("db", new BsonString(databaseName)).getValue();
+                record(db, into.asDocument().get("coll"));
+            }
+        }
+    }
+
+    private void record(String databaseName, BsonValue collection) {
+        if (collection != null && collection.isString()) {
+            record(new MongoNamespace(databaseName, collection.asString().getValue()));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+class ParallelExecution {
+    private static final ExecutorService PLATFORM_THREADS = Executors.newCachedThreadPool(daemonThreads());
+
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    ParallelExecution(int parallelism) {
+        this(parallelism, PLATFORM_THREADS);
+    }
+
+    private ParallelExecution(int parallelism, ExecutorService executor) {
+        this.parallelism = Math.max(1, parallelism);
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the tasks on virtual threads instead of pooled platform threads, at most {@code parallelism} of
+     * them at a time, or returns {@code null} if the JVM does not support them.
+     */
+    static ParallelExecution virtualThreads(int parallelism) {
+        ExecutorService executor = VirtualThreads.EXECUTOR;
+        return executor == null ? null : new ParallelExecution(parallelism, executor);
+    }
+
+    void invokeAll(String operation, List<Task> tasks) {
+        Throwable[] failures = new Throwable[tasks.size()];
+        int workers = Math.min(parallelism, tasks.size());
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(Math.max(0, workers - 1));
+
+        for (int i = 1; i < workers; i++) {
+            executor.execute(() -> {
+                try {
+                    work(tasks, next, failures);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        work(tasks, next, failures);
+        await(done);
+
+        Error error = null;
+        List<String> descriptions = new ArrayList<>();
+        List<RuntimeException> causes = new ArrayList<>();
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] instanceof Error) {
+                if (error == null) error = (Error) failures[i];
+                else if (failures[i] != error) error.addSuppressed(failures[i]);
+            } else if (failures[i] != null) {
+                descriptions.add(tasks.get(i).description);
+                causes.add((RuntimeException) failures[i]);
+            }
+        }
+        // errors are rethrown as they are, e.g. an assertion of a test or an OutOfMemoryError must not be wrapped
+        if (error != null) {
+            causes.forEach(error::addSuppressed);
+            throw error;
+        }
+        if (!causes.isEmpty()) throw failedTasks(operation, descriptions, causes);
+    }
+
+    private static void work(List<Task> tasks, AtomicInteger next, Throwable[] failures) {
+        for (int i = next.getAndIncrement(); i < tasks.size(); i = next.getAndIncrement()) {
+            try {
+                tasks.get(i).action.run();
+            } catch (RuntimeException | Error ex) {
+                failures[i] = ex;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch done) {
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw interrupted(ex);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return (runnable) -> {
+            Thread thread = new Thread(runnable, "spring-mongodb-test-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // initialized on first use, Executors.newVirtualThreadPerTaskExecutor() requires Java 21
+    private static class VirtualThreads {
+        private static final ExecutorService EXECUTOR = create();
+
+        private static ExecutorService create() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                return null;
+            }
+        }
+    }
+
+    static class Task {
+        private final String description;
+        private final Runnable action;
+
+        Task(String description, Runnable action) {
+            this.description = description;
+            this.action = action;
+        }
+    }
+}
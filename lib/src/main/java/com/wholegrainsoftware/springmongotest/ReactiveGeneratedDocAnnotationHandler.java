@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.springframework.test.context.TestContext;
+
+import java.util.concurrent.Semaphore;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+class ReactiveGeneratedDocAnnotationHandler implements AnnotationHandler<GeneratedDoc> {
+
+    @Override
+    public void runScript(TestContext context, GeneratedDoc annotation) {
+        if (annotation.count() <= 0) return;
+
+        DocumentTemplate template = DocumentTemplate.parse(annotation.template());
+        String dbName = resolveDatabaseName(context, annotation.db());
+        MongoCollection<BsonDocument> collection = getReactiveClient(context).getDatabase(dbName)
+                .getCollection(annotation.collection(), BsonDocument.class);
+        recordSeeded(context, dbName, annotation.collection());
+
+        int batchSize = GeneratedDocAnnotationHandler.MAX_BATCH_SIZE;
+        InsertManyOptions unordered = new InsertManyOptions().ordered(false);
+        Subscriptions subscriptions = Subscriptions.of(context);
+        // bounds the rendered documents that are held in memory, while the remaining batches are still rendered
+        Semaphore inFlight = new Semaphore(seedingParallelism(context));
+        for (long start = 0; start < annotation.count(); start += batchSize) {
+            long end = Math.min(annotation.count(), start + batchSize);
+            acquire(inFlight);
+            subscriptions.subscribe(dbName + "." + annotation.collection() + "[" + start + ".." + end + ")",
+                    collection.insertMany(GeneratedDocAnnotationHandler.render(template, annotation.seed(), start / batchSize, start, end), unordered),
+                    (result) -> {
+                    }, inFlight::release);
+        }
+    }
+
+    @Override
+    public void cleanup(TestContext context, CleanupScope scope) {
+        // generated documents are inserted into regular collections, which are cleaned by ReactiveMongoDBAnnotationHandler
+    }
+
+    static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw interrupted(ex);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.TestContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+import static com.wholegrainsoftware.springmongotest.GridFsAnnotationHandler.*;
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+class ReactiveGridFsAnnotationHandler implements AnnotationHandler<GridFsFile> {
+    // bounds the memory of the chunks that are read from a file above the cache limit and not inserted yet
+    private static final int MAX_BATCH_BYTES = 16 * 1024 * 1024;
+
+    @Override
+    public void runScript(TestContext context, GridFsFile annotation) {
+        Resource file = FixturePlan.resources(context, annotation, annotation.filePath()).get(0);
+
+        String dbName = resolveDatabaseName(context, annotation.db());
+        int chunkSize = GridFsAnnotationHandler.chunkSize(context, annotation);
+        String bucketName = annotation.bucket();
+        registerBucket(context, dbName, bucketName);
+        BsonValue id = id(annotation);
+        String filename = getName(file);
+
+        MongoClient client = getReactiveClient(context);
+        MongoDatabase db = client.getDatabase(dbName);
+        Subscriptions subscriptions = Subscriptions.of(context);
+        String description = dbName + "." + bucketName + "/" + annotation.filePath();
+        if (markIndexed(client, dbName, bucketName)) {
+            subscriptions.subscribe(description, db.getCollection(bucketName + FILES).createIndex(Indexes.ascending("filename", "uploadDate")));
+            subscriptions.subscribe(description, db.getCollection(bucketName + CHUNKS)
+                    .createIndex(Indexes.ascending(FILES_ID, N), new IndexOptions().unique(true)));
+        }
+
+        // the chunks are written directly, so that all files are uploaded at once without adapting them to a publisher
+        MongoCollection<RawBsonDocument> chunkCollection = db.getCollection(bucketName + CHUNKS, RawBsonDocument.class);
+        Upload upload = new Upload(subscriptions, description, db.getCollection(bucketName + FILES));
+        List<RawBsonDocument> chunks = chunks(context, file, chunkSize);
+        if (chunks != null) {
+            if (!chunks.isEmpty()) upload.insert(chunkCollection.insertMany(chunkDocuments(id, chunks)), () -> {
+            });
+            upload.read(filesDocument(annotation, id, filename, chunkSize, chunks));
+            return;
+        }
+
+        int batchSize = Math.max(1, MAX_BATCH_BYTES / chunkSize);
+        Semaphore inFlight = new Semaphore(seedingParallelism(context));
+        long length = 0;
+        try (InputStream stream = getStream(file)) {
+            for (int n = 0; ; n += batchSize) {
+                ReactiveGeneratedDocAnnotationHandler.acquire(inFlight);
+                List<RawBsonDocument> batch = readChunks(stream, n, batchSize, chunkSize);
+                if (batch.isEmpty()) {
+                    inFlight.release();
+                    break;
+                }
+                for (RawBsonDocument chunk : batch) {
+                    length += chunk.getBinary(DATA).getData().length;
+                }
+                upload.insert(chunkCollection.insertMany(chunkDocuments(id, batch)), inFlight::release);
+                if (batch.size() < batchSize) break;
+            }
+        } catch (IOException ex) {
+            throw failedToReadFile(ex);
+        }
+        upload.read(filesDocument(annotation, id, filename, chunkSize, length));
+    }
+
+    @Override
+    public void cleanup(TestContext context, CleanupScope scope) {
+        MongoClient client = getReactiveClient(context);
+        Subscriptions deletions = new Subscriptions();
+        for (String dbName : ReactiveMongoDBAnnotationHandler.databaseNames(context, scope)) {
+            MongoDatabase db = client.getDatabase(dbName);
+            for (String bucket : buckets(dbName)) {
+                if (!scope.includes(dbName, bucket + FILES) && !scope.includes(dbName, bucket + CHUNKS)) continue;
+                deletions.subscribe(dbName + "." + bucket, db.getCollection(bucket + FILES).deleteMany(new Document()));
+                deletions.subscribe(dbName + "." + bucket, db.getCollection(bucket + CHUNKS).deleteMany(new Document()));
+            }
+        }
+        deletions.await("clean GridFs bucket");
+    }
+
+    /**
+     * Inserts the files document once the whole file has been read and all of its chunks have been inserted,
+     * so that a file is never visible without its content. If a chunk could not be inserted, the file is not
+     * inserted at all.
+     */
+    static class Upload {
+        private final Subscriptions subscriptions;
+        private final String description;
+        private final MongoCollection<Document> files;
+        // the chunk inserts that have not completed yet, plus one until the file has been read
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private volatile Document filesDocument;
+
+        Upload(Subscriptions subscriptions, String description, MongoCollection<Document> files) {
+            this.subscriptions = subscriptions;
+            this.description = description;
+            this.files = files;
+        }
+
+        void insert(Publisher<InsertManyResult> chunks, Runnable onDone) {
+            pending.incrementAndGet();
+            AtomicBoolean inserted = new AtomicBoolean();
+            subscriptions.subscribe(description, chunks, (result) -> inserted.set(true), () -> {
+                if (!inserted.get()) failed.set(true);
+                onDone.run();
+                done();
+            });
+        }
+
+        void read(Document filesDocument) {
+            this.filesDocument = filesDocument;
+            done();
+        }
+
+        private void done() {
+            if (pending.decrementAndGet() == 0 && !failed.get()) subscriptions.subscribe(description, files.insertOne(filesDocument));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.springframework.test.context.TestContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+
+class ReactiveMongoDBAnnotationHandler implements AnnotationHandler<Doc> {
+
+    @Override
+    public void runScript(TestContext context, Doc annotation) {
+        List<RawBsonDocument> documents = MongoDBAnnotationHandler.documents(context, annotation);
+        if (documents.isEmpty()) return;
+
+        String dbName = resolveDatabaseName(context, annotation.db());
+        recordSeeded(context, dbName, annotation.collection());
+        // the driver splits the documents into batches that fit the limits of the server
+        Subscriptions.of(context).subscribe(dbName + "." + annotation.collection(), getReactiveClient(context).getDatabase(dbName)
+                .getCollection(annotation.collection(), RawBsonDocument.class).insertMany(documents));
+    }
+
+    @Override
+    public void cleanup(TestContext context, CleanupScope scope) {
+        MongoClient client = getReactiveClient(context);
+        List<String> dbNames = databaseNames(context, scope);
+
+        Map<String, List<String>> collections = new ConcurrentHashMap<>();
+        Subscriptions listing = new Subscriptions();
+        for (String dbName : dbNames) {
+            if (scope.isExhaustive()) {
+                List<String> names = Collections.synchronizedList(new ArrayList<>());
+                collections.put(dbName, names);
+                listing.subscribe(dbName, client.getDatabase(dbName).listCollectionNames(), names::add);
+            } else {
+                collections.put(dbName, new ArrayList<>(scope.trackedCollectionNames(dbName)));
+            }
+        }
+        listing.await("list collections of");
+
+        Subscriptions deletions = new Subscriptions();
+        for (String dbName : dbNames) {
+            MongoDatabase db = client.getDatabase(dbName);
+            for (String name : collections.get(dbName)) {
+                if (GridFsAnnotationHandler.isBucketCollection(dbName, name)) continue;
+                deletions.subscribe(dbName + "." + name, db.getCollection(name).deleteMany(new Document()));
+            }
+        }
+        deletions.await("clean");
+    }
+
+    static List<String> databaseNames(TestContext context, CleanupScope scope) {
+        if (!scope.isExhaustive()) return scope.databaseNames(context);
+        List<String> dbNames = Collections.synchronizedList(new ArrayList<>());
+        Subscriptions listing = new Subscriptions();
+        listing.subscribe("databases", getReactiveClient(context).listDatabaseNames(), dbNames::add);
+        listing.await("list");
+        return dbNames.stream().filter((dbName) -> isCleanableDatabase(context, dbName)).collect(Collectors.toList());
+    }
+}
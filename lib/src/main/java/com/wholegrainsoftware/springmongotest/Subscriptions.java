@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.test.context.TestContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * Publishers of the reactive driver that have been subscribed to and are still running. Awaiting them is
+ * the only point at which the reactive handlers block, so all inserts of a test are in flight at once.
+ */
+class Subscriptions {
+    // a compile-time constant, so that looking for subscriptions does not load the reactive streams API
+    static final String ATTRIBUTE = "com.wholegrainsoftware.springmongotest.Subscriptions";
+
+    private final List<Pending<?>> pending = new ArrayList<>();
+
+    static Subscriptions of(TestContext context) {
+        Subscriptions subscriptions = (Subscriptions) context.getAttribute(ATTRIBUTE);
+        if (subscriptions == null) {
+            subscriptions = new Subscriptions();
+            context.setAttribute(ATTRIBUTE, subscriptions);
+        }
+        return subscriptions;
+    }
+
+    static void await(TestContext context, String operation) {
+        Subscriptions subscriptions = (Subscriptions) context.removeAttribute(ATTRIBUTE);
+        if (subscriptions != null) subscriptions.await(operation);
+    }
+
+    <T> void subscribe(String description, Publisher<T> publisher) {
+        subscribe(description, publisher, (item) -> {
+        }, () -> {
+        });
+    }
+
+    <T> void subscribe(String description, Publisher<T> publisher, Consumer<? super T> onNext) {
+        subscribe(description, publisher, onNext, () -> {
+        });
+    }
+
+    synchronized <T> void subscribe(String description, Publisher<T> publisher, Consumer<? super T> onNext, Runnable onDone) {
+        Pending<T> subscriber = new Pending<>(description, onNext, onDone);
+        pending.add(subscriber);
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Waits for every publisher, including those subscribed to once another one has completed.
+     */
+    void await(String operation) {
+        List<String> descriptions = new ArrayList<>();
+        List<RuntimeException> causes = new ArrayList<>();
+        for (List<Pending<?>> subscribers = drain(); !subscribers.isEmpty(); subscribers = drain()) {
+            for (Pending<?> subscriber : subscribers) {
+                RuntimeException failure = subscriber.await();
+                if (failure == null) continue;
+                descriptions.add(subscriber.description);
+                causes.add(failure);
+            }
+        }
+        if (!causes.isEmpty()) throw failedTasks(operation, descriptions, causes);
+    }
+
+    private synchronized List<Pending<?>> drain() {
+        List<Pending<?>> subscribers = new ArrayList<>(pending);
+        pending.clear();
+        return subscribers;
+    }
+
+    private static class Pending<T> implements Subscriber<T> {
+        private final String description;
+        private final Consumer<? super T> onNext;
+        private final Runnable onDone;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile RuntimeException failure;
+
+        Pending(String description, Consumer<? super T> onNext, Runnable onDone) {
+            this.description = description;
+            this.onNext = onNext;
+            this.onDone = onDone;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T item) {
+            onNext.accept(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable instanceof RuntimeException ? (RuntimeException) throwable : new IllegalStateException(throwable);
+            complete();
+        }
+
+        @Override
+        public void onComplete() {
+            complete();
+        }
+
+        private void complete() {
+            try {
+                onDone.run();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private RuntimeException await() {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw interrupted(ex);
+            }
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.springframework.test.context.TestContext;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+
+class Trace implements AutoCloseable {
+    private static final boolean JFR_PRESENT = ClassUtils.isPresent("jdk.jfr.Event", Trace.class.getClassLoader());
+    private static final Trace DISABLED = new Trace(null);
+
+    private final PhaseEvent event;
+
+    private Trace(PhaseEvent event) {
+        this.event = event;
+    }
+
+    static Trace start(TestContext context, String phase) {
+        if (!JFR_PRESENT) return DISABLED;
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) return DISABLED;
+
+        Method testMethod = context.getTestMethod();
+        event.phase = phase;
+        event.testClass = context.getTestClass();
+        event.testMethod = testMethod == null ? null : testMethod.getName();
+        event.begin();
+        return new Trace(event);
+    }
+
+    Trace database(String database) {
+        if (event != null) event.database = database;
+        return this;
+    }
+
+    Trace collection(String collection) {
+        if (event != null) event.collection = collection;
+        return this;
+    }
+
+    Trace documents(long count) {
+        if (event != null) event.documentCount += count;
+        return this;
+    }
+
+    Trace bytes(long count) {
+        if (event != null) event.byteCount += count;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (event != null && event.shouldCommit()) event.commit();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoDatabaseUtils;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.test.context.TestContext;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static com.wholegrainsoftware.springmongotest.MongoDBTestException.*;
+
+/**
+ * A transaction that spans the seeding and the test method and is rolled back afterwards. It is bound to
+ * the test thread through a {@link MongoTransactionManager}, so every {@code MongoTemplate} and repository
+ * operation of the test joins it.
+ *
+ * <p>Since nothing is deleted, the first test that uses a transaction for a {@link MongoClient} sweeps all
+ * collections once, so that documents left by earlier runs or other cleanup strategies do not remain for
+ * the rest of the run.</p>
+ */
+class TransactionIsolation {
+    // a compile-time constant, so that looking for a transaction does not load spring-data-mongodb
+    static final String ATTRIBUTE = "com.wholegrainsoftware.springmongotest.TransactionIsolation";
+    private static final Set<MongoClient> SWEPT = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final MongoTransactionManager transactionManager;
+    private final MongoDatabaseFactory databaseFactory;
+    private final TransactionStatus status;
+
+    private TransactionIsolation(MongoTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+        this.databaseFactory = (MongoDatabaseFactory) transactionManager.getResourceFactory();
+        this.status = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+    }
+
+    static void begin(TestContext context) {
+        ApplicationContext applicationContext = context.getApplicationContext();
+        MongoTransactionManager transactionManager = applicationContext.getBeanProvider(MongoTransactionManager.class).getIfAvailable(() -> {
+            MongoDatabaseFactory databaseFactory = applicationContext.getBeanProvider(MongoDatabaseFactory.class).getIfAvailable();
+            if (databaseFactory == null) throw missingDatabaseFactory();
+            return new MongoTransactionManager(databaseFactory);
+        });
+        context.setAttribute(ATTRIBUTE, new TransactionIsolation(transactionManager));
+    }
+
+    static boolean sweepRequired(MongoClient client) {
+        return SWEPT.add(client);
+    }
+
+    static MongoDatabase database(TestContext context, String dbName) {
+        TransactionIsolation transaction = (TransactionIsolation) context.getAttribute(ATTRIBUTE);
+        return MongoDatabaseUtils.getDatabase(dbName, transaction.databaseFactory);
+    }
+
+    static void rollback(TestContext context) {
+        TransactionIsolation transaction = (TransactionIsolation) context.removeAttribute(ATTRIBUTE);
+        if (transaction != null && !transaction.status.isCompleted()) {
+            transaction.transactionManager.rollback(transaction.status);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.MergedContextConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.wholegrainsoftware.springmongotest.AnnotationHandlerHelper.*;
+
+class WorkerIsolationContextCustomizer implements ContextCustomizer {
+    private static final String PROPERTY_SOURCE_NAME = "springMongoDBTestWorkerIsolation";
+    private static final String SUFFIX_PREFIX = "_worker";
+
+    private final String gradleWorker;
+
+    WorkerIsolationContextCustomizer(String gradleWorker) {
+        this.gradleWorker = gradleWorker;
+    }
+
+    @Override
+    public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+        ConfigurableEnvironment env = context.getEnvironment();
+        if (!env.getProperty(ISOLATION_ENABLED, Boolean.class, false)) return;
+
+        String workerId = env.getProperty(ISOLATION_WORKER_ID, String.class, gradleWorker);
+        String database = getDatabaseName(env);
+        if (workerId == null || workerId.isEmpty() || database == null) return;
+
+        String suffix = SUFFIX_PREFIX + workerId.replaceAll("[^A-Za-z0-9_-]", "_");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(ISOLATION_SUFFIX, suffix);
+        properties.put(MONGODB_DATABASE, database.endsWith(suffix) ? database : database + suffix);
+        env.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME, properties));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (other == null || getClass() != other.getClass()) return false;
+        return Objects.equals(gradleWorker, ((WorkerIsolationContextCustomizer) other).gradleWorker);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(gradleWorker);
+    }
+}
@@ -76,6 +76,21 @@ class AnnotationHandlerHelperTest {
         assertEquals(ex.getMessage(), "Failed to determine database. You need to provide either 'spring.data.mongodb.database' or 'spring.data.mongodb.uri' property in application.yaml.");
     }
 
+    @Test
+    public void resolveDatabaseNameAppendsIsolationSuffixToExplicitDatabase() {
+        when(env.getProperty("spring-mongodb-test.isolation.suffix", String.class, "")).thenReturn("_worker3");
+
+        assertEquals(resolveDatabaseName(ctx, "other_db"), "other_db_worker3");
+        assertEquals(resolveDatabaseName(ctx, "other_db_worker3"), "other_db_worker3");
+    }
+
+    @Test
+    public void resolveDatabaseNameKeepsExplicitDatabaseWithoutIsolation() {
+        when(env.getProperty("spring-mongodb-test.isolation.suffix", String.class, "")).thenReturn("");
+
+        assertEquals(resolveDatabaseName(ctx, "other_db"), "other_db");
+    }
+
     @Test
     public void asStringReadsASpringResourceIntoString() throws Exception {
         Resource res = mock(Resource.class);
@@ -117,4 +132,31 @@ class AnnotationHandlerHelperTest {
 
         assertEquals(ex.getMessage(), "Filename should not be null.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getCleanupStrategyParsesRollback() {
+        when(env.getProperty("spring-mongodb-test.cleanup.strategy", String.class, "DELETE")).thenReturn("rollback");
+
+        assertEquals(getCleanupStrategy(ctx), CleanupStrategy.ROLLBACK);
+    }
+
+    @Test
+    public void isTransactionalReturnsFalseWithoutTransaction() {
+        when(ctx.hasAttribute(TransactionIsolation.ATTRIBUTE)).thenReturn(false);
+
+        assertEquals(isTransactional(ctx), false);
+    }
+
+    @Test
+    public void isExcludedDatabaseExcludesTemplateDatabases() {
+        assertEquals(isExcludedDatabase("spring_mongodb_test_templates"), true);
+        assertEquals(isExcludedDatabase("spring_mongodb_test_templates_worker1"), true);
+        assertEquals(isExcludedDatabase("my_database"), false);
+    }
+
+    @Test
+    public void isExcludedDatabaseExcludesSentinelDatabases() {
+        assertEquals(isExcludedDatabase("spring_mongodb_test_sentinel"), true);
+        assertEquals(isExcludedDatabase("spring_mongodb_test_sentinel_worker1"), true);
+    }
+}
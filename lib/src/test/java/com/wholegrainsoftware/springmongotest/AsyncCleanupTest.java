@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AsyncCleanupTest {
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            AsyncCleanup.await();
+        } finally {
+            AsyncCleanup.consume(null);
+        }
+    }
+
+    @Test
+    public void awaitWaitsForTheSubmittedCleanup() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        AsyncCleanup.submit(appCtx, () -> {
+            await(release);
+            done.set(true);
+        });
+        release.countDown();
+
+        AsyncCleanup.await();
+
+        assertTrue(done.get());
+    }
+
+    @Test
+    public void consumeReportsTheCleanupOnceForItsContext() {
+        AsyncCleanup.submit(appCtx, () -> {
+        });
+        AsyncCleanup.await();
+
+        assertTrue(AsyncCleanup.consume(appCtx));
+        assertFalse(AsyncCleanup.consume(appCtx));
+    }
+
+    @Test
+    public void consumeIgnoresCleanupsOfOtherContexts() {
+        AsyncCleanup.submit(mock(ApplicationContext.class), () -> {
+        });
+        AsyncCleanup.await();
+
+        assertFalse(AsyncCleanup.consume(appCtx));
+    }
+
+    @Test
+    public void awaitRethrowsTheFailureOfTheCleanup() {
+        IllegalStateException failure = new IllegalStateException("unreachable");
+        AsyncCleanup.submit(appCtx, () -> {
+            throw failure;
+        });
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, AsyncCleanup::await);
+
+        assertEquals(ex.getMessage(), "Failed to clean up after the previous test.");
+        assertEquals(ex.getCause(), failure);
+        assertFalse(AsyncCleanup.consume(appCtx));
+    }
+
+    @Test
+    public void submitWaitsForThePreviousCleanup() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean();
+        AsyncCleanup.submit(appCtx, () -> {
+            await(release);
+            first.set(true);
+        });
+        release.countDown();
+
+        AsyncCleanup.submit(appCtx, () -> assertTrue(first.get()));
+
+        assertTrue(first.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
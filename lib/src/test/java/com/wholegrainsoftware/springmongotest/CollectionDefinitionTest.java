@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.ListIndexesIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollectionDefinitionTest {
+    private final MongoDatabase db = mock(MongoDatabase.class);
+    private ListCollectionsIterable<Document> collections;
+    private ListIndexesIterable<Document> indexes;
+    private MongoCollection<Document> collection;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        collections = mock(ListCollectionsIterable.class);
+        when(db.listCollections()).thenReturn(collections);
+        when(collections.filter(any(Bson.class))).thenReturn(collections);
+        collection = mock(MongoCollection.class);
+        when(db.getCollection("person")).thenReturn(collection);
+        indexes = mock(ListIndexesIterable.class);
+        when(collection.listIndexes()).thenReturn(indexes);
+    }
+
+    @Test
+    public void missingCollectionsHaveNoDefinition() {
+        assertNull(CollectionDefinition.of(db, "person"));
+    }
+
+    @Test
+    public void viewsAreNotDroppable() {
+        when(collections.first()).thenReturn(new Document("name", "person").append("type", "view"));
+
+        assertFalse(CollectionDefinition.of(db, "person").isDroppable());
+    }
+
+    @Test
+    public void restoreKeepsTheOptionsAndIndexes() {
+        Document validator = new Document("$jsonSchema", new Document("required", Collections.singletonList("name")));
+        when(collections.first()).thenReturn(new Document("name", "person").append("type", "collection")
+                .append("options", new Document("validator", validator)));
+        indexes(new Document("v", 2).append("key", new Document("_id", 1)).append("name", "_id_"),
+                new Document("v", 2).append("key", new Document("name", 1)).append("name", "name_1")
+                        .append("unique", true).append("ns", "db.person"));
+
+        CollectionDefinition definition = CollectionDefinition.of(db, "person");
+        definition.dropAndRestore(db);
+
+        assertTrue(definition.isDroppable());
+        InOrder order = inOrder(collection, db);
+        order.verify(collection).drop();
+        order.verify(db).runCommand(new Document("create", "person").append("validator", validator));
+        order.verify(db).runCommand(new Document("createIndexes", "person").append("indexes", Collections.singletonList(
+                new Document("v", 2).append("key", new Document("name", 1)).append("name", "name_1").append("unique", true))));
+    }
+
+    @Test
+    public void indexesCreatedByATestAreRestored() {
+        when(collections.first()).thenReturn(new Document("name", "person").append("options", new Document()));
+        Document byName = new Document("v", 2).append("key", new Document("name", 1)).append("name", "name_1");
+        indexes(byName);
+        CollectionDefinition.of(db, "person").dropAndRestore(db);
+
+        Document byAge = new Document("v", 2).append("key", new Document("age", 1)).append("name", "age_1");
+        indexes(byName, byAge);
+        CollectionDefinition.of(db, "person").dropAndRestore(db);
+
+        verify(db).runCommand(new Document("createIndexes", "person").append("indexes", Arrays.asList(byName, byAge)));
+        verify(db, times(2)).runCommand(new Document("create", "person"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void indexes(Document... specs) {
+        when(indexes.into(any())).thenAnswer((invocation) -> {
+            List<Document> target = (List<Document>) invocation.getArguments()[0];
+            target.addAll(Arrays.asList(specs));
+            return target;
+        });
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatabasePoolTest {
+
+    @Test
+    public void databasesThatCannotBeCleanedAreNeverRented() {
+        MongoClient client = mock(MongoClient.class);
+        MongoDatabase db = mock(MongoDatabase.class);
+        when(client.getDatabase("my_database_pool0")).thenReturn(db);
+        when(db.listCollectionNames()).thenThrow(new MongoException("unreachable"));
+
+        DatabasePool pool = new DatabasePool(client, "my_database", 1);
+
+        MongoDBTestException first = assertThrows(MongoDBTestException.class, pool::rent);
+        MongoDBTestException second = assertThrows(MongoDBTestException.class, pool::rent);
+
+        assertEquals(first.getMessage(), "Failed to recycle pooled database my_database_pool0.");
+        assertEquals(second.getMessage(), first.getMessage());
+        assertEquals(pool.availableCount(), 0);
+        assertEquals(pool.recycleCount(), 0);
+        verify(db, times(3)).listCollectionNames();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void releasedDatabasesAreNoLongerResolved() {
+        MongoClient client = mock(MongoClient.class);
+        MongoDatabase db = mock(MongoDatabase.class);
+        MongoIterable<String> names = mock(MongoIterable.class);
+        MongoCursor<String> cursor = mock(MongoCursor.class);
+        when(client.getDatabase(anyString())).thenReturn(db);
+        when(db.listCollectionNames()).thenReturn(names);
+        when(names.iterator()).thenReturn(cursor);
+
+        DatabasePool pool = new DatabasePool(client, "my_database", 2);
+        pool.rent();
+        pool.release();
+        String second = pool.rent();
+
+        assertEquals(second, "my_database_pool1");
+        assertEquals(pool.getDatabaseName(), "my_database_pool1");
+
+        pool.release();
+
+        assertEquals(pool.getDatabaseName(), "my_database_pool0");
+    }
+}
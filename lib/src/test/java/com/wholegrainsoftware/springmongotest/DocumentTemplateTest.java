@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentTemplateTest {
+
+    @Test
+    public void renderReplacesPlaceholders() {
+        DocumentTemplate template = DocumentTemplate.parse("{ _id: '{{objectId}}', n: '{{sequence:10}}', " +
+                "name: '{{string:8}}', tags: ['{{int:1,2}}'], nested: { at: '{{date:2020-01-01T00:00:00Z,2020-01-02T00:00:00Z}}' }, fixed: 'x' }");
+
+        BsonDocument document = template.render(5, new SplittableRandom(1));
+
+        assertTrue(document.isObjectId("_id"));
+        assertEquals(document.getInt64("n").getValue(), 15);
+        assertEquals(document.getString("name").getValue().length(), 8);
+        assertEquals(document.getArray("tags").get(0).asInt32().getValue(), 1);
+        assertTrue(document.getDocument("nested").isDateTime("at"));
+        assertEquals(document.getString("fixed").getValue(), "x");
+    }
+
+    @Test
+    public void renderIsDeterministicForTheSameSeed() {
+        DocumentTemplate template = DocumentTemplate.parse("{ _id: '{{objectId}}', name: '{{string:16}}', value: '{{double:0,1}}' }");
+
+        assertEquals(template.render(0, new SplittableRandom(42)), template.render(0, new SplittableRandom(42)));
+        assertNotEquals(template.render(0, new SplittableRandom(42)), template.render(0, new SplittableRandom(43)));
+    }
+
+    @Test
+    public void parseThrowsExceptionForUnknownPlaceholders() {
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> DocumentTemplate.parse("{ a: '{{uuid}}' }"));
+
+        assertEquals(ex.getMessage(), "Invalid placeholder {{uuid}} in document template.");
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixtureBundleTest {
+    private Path directory;
+    private URLClassLoader classLoader;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("fixture-bundle");
+        Files.createDirectories(directory.resolve("fixtures"));
+        write("fixtures/person.json", "{ \"name\": \"Jimi\" }\n{ \"name\": \"Jane\" }");
+        write("fixtures/test.pdf", "not really a pdf");
+        classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, null);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        classLoader.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Test
+    public void compiledFixturesAreLoadedFromTheBundle() throws Exception {
+        compile(ValidFixtures.class);
+
+        FixtureBundle bundle = FixtureBundle.load(classLoader);
+        List<RawBsonDocument> documents = bundle.documents(new ClassPathResource("fixtures/person.json", classLoader));
+        List<RawBsonDocument> chunks = bundle.chunks(new ClassPathResource("fixtures/test.pdf", classLoader), 4);
+
+        assertEquals(documents.size(), 2);
+        assertEquals(documents.get(1).getString("name").getValue(), "Jane");
+        assertEquals(chunks.size(), 4);
+        assertEquals(chunks.get(3).getInt32("n").getValue(), 3);
+    }
+
+    @Test
+    public void changedFixturesAreNotLoadedFromTheBundle() throws Exception {
+        compile(ValidFixtures.class);
+        write("fixtures/person.json", "{ \"name\": \"Joan\" }\n{ \"name\": \"Jane\" }");
+
+        FixtureBundle bundle = FixtureBundle.load(classLoader);
+
+        assertNull(bundle.documents(new ClassPathResource("fixtures/person.json", classLoader)));
+        assertNull(bundle.chunks(new ClassPathResource("fixtures/test.pdf", classLoader), 8));
+    }
+
+    @Test
+    public void fixturesChangedAfterTheFirstLookupAreNotLoadedFromTheBundle() throws Exception {
+        compile(ValidFixtures.class);
+        FixtureBundle bundle = FixtureBundle.load(classLoader);
+        assertNotNull(bundle.documents(new ClassPathResource("fixtures/person.json", classLoader)));
+
+        write("fixtures/person.json", "{ \"name\": \"Joan\" }\n{ \"name\": \"Jane\" }");
+        Path file = directory.resolve("fixtures/person.json");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+
+        assertNull(bundle.documents(new ClassPathResource("fixtures/person.json", classLoader)));
+    }
+
+    @Test
+    public void malformedFixturesFailTheCompilation() throws Exception {
+        write("fixtures/broken.json", "{ \"name\": Jimi }");
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> compile(InvalidFixtures.class));
+
+        assertTrue(ex.getMessage().contains(InvalidFixtures.class.getName() + "#annotatedMethod"));
+        assertTrue(ex.getMessage().contains("broken.json"));
+        assertFalse(Files.exists(directory.resolve(FixtureBundle.LOCATION)));
+    }
+
+    private void compile(Class<?> testClass) throws IOException {
+        FixtureBundleCompiler compiler = new FixtureBundleCompiler(classLoader);
+        compiler.compile(testClass);
+        compiler.write(directory.resolve(FixtureBundle.LOCATION));
+    }
+
+    private void write(String path, String content) throws IOException {
+        Files.write(directory.resolve(path), content.getBytes(UTF_8));
+    }
+
+    @Doc(collection = "person", files = "/fixtures/person.json")
+    @GridFsFile(id = "60327c7f9189342c201e0e11", filePath = "/fixtures/test.pdf", chunkSize = 4)
+    static class ValidFixtures {
+    }
+
+    static class InvalidFixtures {
+        @Doc(collection = "person", files = "/fixtures/broken.json")
+        public void annotatedMethod() {
+        }
+    }
+}
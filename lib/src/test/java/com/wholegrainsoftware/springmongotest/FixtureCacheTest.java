@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FixtureCacheTest {
+    private final FixtureCache cache = new FixtureCache(FixtureCache.DEFAULT_MAX_BYTES);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void getLoadsFixtureOnlyOnce() {
+        List<RawBsonDocument> first = cache.get("john-doe.bson@1", loader("{ name: 'John' }"));
+        List<RawBsonDocument> second = cache.get("john-doe.bson@1", loader("{ name: 'John' }"));
+
+        assertSame(first, second);
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.missCount(), 1);
+        assertEquals(cache.hitCount(), 1);
+    }
+
+    @Test
+    public void getReloadsFixtureIfLastModifiedChanged() {
+        cache.get("john-doe.bson@1", loader("{ name: 'John' }"));
+        List<RawBsonDocument> documents = cache.get("john-doe.bson@2", loader("{ name: 'Johnny' }"));
+
+        assertEquals(documents.get(0).getString("name").getValue(), "Johnny");
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void getDoesNotCacheWithoutKey() {
+        cache.get(null, loader("{ name: 'John' }"));
+        cache.get(null, loader("{ name: 'John' }"));
+
+        assertEquals(loads.get(), 2);
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedWhenLimitIsExceeded() {
+        long size = RawBsonDocument.parse("{ name: 'John' }").getByteBuffer().remaining();
+        cache.setMaxBytes(2 * size);
+
+        cache.get("a", loader("{ name: 'John' }"));
+        cache.get("b", loader("{ name: 'Jane' }"));
+        cache.get("a", loader("{ name: 'John' }"));
+        cache.get("c", loader("{ name: 'Jack' }"));
+        cache.get("a", loader("{ name: 'John' }"));
+        cache.get("b", loader("{ name: 'Jane' }"));
+
+        assertEquals(cache.evictionCount(), 2);
+        assertEquals(cache.size(), 2 * size);
+        assertEquals(loads.get(), 4);
+    }
+
+    private Supplier<List<RawBsonDocument>> loader(String json) {
+        return () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(RawBsonDocument.parse(json));
+        };
+    }
+}
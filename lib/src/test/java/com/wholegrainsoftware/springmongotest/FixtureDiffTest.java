@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FixtureDiffTest {
+
+    @Test
+    public void documentsWithoutIdCannotBeDiffed() {
+        assertNull(FixtureDiff.of(Arrays.asList(doc("{_id: 1, name: 'Jimi'}"), doc("{name: 'Joan'}"))));
+    }
+
+    @Test
+    public void differentDocumentsWithTheSameIdCannotBeDiffed() {
+        assertNull(FixtureDiff.of(Arrays.asList(doc("{_id: 1, name: 'Jimi'}"), doc("{_id: 1, name: 'Joan'}"))));
+    }
+
+    @Test
+    public void documentsDeclaredTwiceAreDiffedOnce() {
+        FixtureDiff diff = FixtureDiff.of(Arrays.asList(doc("{_id: 1, name: 'Jimi'}"), doc("{_id: 1, name: 'Jimi'}")));
+
+        assertNotNull(diff);
+        assertEquals(diff.hashes().keySet(), Collections.singleton(new BsonInt32(1)));
+    }
+
+    @Test
+    public void writesDeleteReplaceAndInsertChangedDocuments() {
+        Map<BsonValue, String> present = FixtureDiff.of(Arrays.asList(
+                doc("{_id: 1, name: 'Jimi'}"), doc("{_id: 2, name: 'Joan'}"), doc("{_id: 3, name: 'Jack'}"))).hashes();
+        FixtureDiff diff = FixtureDiff.of(Arrays.asList(
+                doc("{_id: 2, name: 'Joan'}"), doc("{_id: 3, name: 'John'}"), doc("{_id: 4, name: 'Jill'}")));
+
+        List<WriteModel<RawBsonDocument>> writes = diff.writes(present);
+
+        assertEquals(writes.size(), 3);
+        assertEquals(((DeleteOneModel<RawBsonDocument>) writes.get(0)).getFilter().toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()),
+                BsonDocument.parse("{_id: 1}"));
+        assertEquals(((ReplaceOneModel<RawBsonDocument>) writes.get(1)).getReplacement(), doc("{_id: 3, name: 'John'}"));
+        assertEquals(((InsertOneModel<RawBsonDocument>) writes.get(2)).getDocument(), doc("{_id: 4, name: 'Jill'}"));
+    }
+
+    @Test
+    public void unchangedDocumentsAreNotWritten() {
+        List<RawBsonDocument> documents = Arrays.asList(doc("{_id: 1, name: 'Jimi'}"), doc("{_id: 2, name: 'Joan'}"));
+        FixtureDiff diff = FixtureDiff.of(documents);
+
+        assertTrue(diff.writes(FixtureDiff.of(documents).hashes()).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rejectedWritesAreReported() {
+        TestContext ctx = mock(TestContext.class);
+        ApplicationContext appCtx = mock(ApplicationContext.class);
+        MongoClient client = mock(MongoClient.class);
+        MongoDatabase db = mock(MongoDatabase.class);
+        MongoCollection<RawBsonDocument> collection = mock(MongoCollection.class);
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+        when(client.getDatabase("db")).thenReturn(db);
+        when(db.getCollection("people", RawBsonDocument.class)).thenReturn(collection);
+        when(collection.bulkWrite(any())).thenThrow(mock(MongoBulkWriteException.class));
+
+        FixtureDiff diff = FixtureDiff.of(Collections.singletonList(doc("{_id: 1, name: 'Jimi'}")));
+
+        assertFalse(diff.apply(ctx, new MongoNamespace("db", "people"), new HashMap<>()));
+    }
+
+    private static RawBsonDocument doc(String json) {
+        return RawBsonDocument.parse(json);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.context.TestContext;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FixturePlanTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final GenericApplicationContext appCtx = new GenericApplicationContext();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        MongoClient client = mock(MongoClient.class);
+        appCtx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("spring.data.mongodb.database", "my_database")));
+        appCtx.registerBean(MongoClient.class, () -> client);
+        appCtx.refresh();
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        doReturn(FixturePlanTest.class).when(ctx).getTestClass();
+        when(ctx.getTestMethod()).thenReturn(FixturePlanTest.class.getDeclaredMethod("annotatedMethod"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        appCtx.close();
+    }
+
+    @Test
+    public void ofCompilesAnnotationsAndResources() {
+        FixturePlan plan = FixturePlan.of(ctx);
+
+        assertEquals(plan.docs().size(), 1);
+        assertEquals(plan.databaseName(""), "my_database");
+        assertEquals(plan.databaseName("other_db"), "other_db");
+
+        when(ctx.getAttribute(FixturePlan.ATTRIBUTE)).thenReturn(plan);
+
+        assertEquals(FixturePlan.resources(ctx, plan.docs().get(0)).size(), 2);
+    }
+
+    @Test
+    public void ofReturnsTheSamePlanUntilTheContextIsClosed() {
+        FixturePlan plan = FixturePlan.of(ctx);
+
+        assertSame(FixturePlan.of(ctx), plan);
+
+        appCtx.close();
+
+        // a new plan has to be compiled, which fails for a closed context
+        assertThrows(IllegalStateException.class, () -> FixturePlan.of(ctx));
+    }
+
+    @Test
+    public void ofInsertsDocumentsDeclaredOnClassAndMethodOnce() throws Exception {
+        doReturn(AnnotatedClass.class).when(ctx).getTestClass();
+        when(ctx.getTestMethod()).thenReturn(AnnotatedClass.class.getDeclaredMethod("annotatedMethod"));
+
+        FixturePlan plan = FixturePlan.of(ctx);
+
+        assertEquals(plan.docs().size(), 2);
+        assertEquals(plan.docs().get(1).collection(), "department");
+    }
+
+    @Doc(collection = "person", files = {"/documents/a.bson", "/documents/b.bson"})
+    private void annotatedMethod() {
+    }
+
+    @Doc(collection = "person", files = {"/documents/a.bson", "/documents/b.bson"})
+    private static class AnnotatedClass {
+        @Doc(collection = "person", files = {"/documents/a.bson", "/documents/b.bson"})
+        @Doc(collection = "department", files = "/documents/c.bson")
+        private void annotatedMethod() {
+        }
+    }
+}
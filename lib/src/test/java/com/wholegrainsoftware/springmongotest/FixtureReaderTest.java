@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixtureReaderTest {
+
+    @Test
+    public void readParsesASingleDocument() throws Exception {
+        List<RawBsonDocument> documents = FixtureReader.read(new StringReader("{ \"name\": \"Jimi\" }"));
+
+        assertEquals(documents.size(), 1);
+        assertEquals(documents.get(0).getString("name").getValue(), "Jimi");
+    }
+
+    @Test
+    public void readParsesAJsonArray() throws Exception {
+        List<RawBsonDocument> documents = FixtureReader.read(new StringReader("[\n  { \"a\": 1 },\n  { \"a\": 2 }\n]"));
+
+        assertEquals(documents.size(), 2);
+        assertEquals(documents.get(1).getInt32("a").getValue(), 2);
+    }
+
+    @Test
+    public void readParsesNewlineDelimitedDocuments() throws Exception {
+        List<RawBsonDocument> documents = FixtureReader.read(new StringReader("{\"a\": {\"b\": 1}}\n{\"a\": {\"b\": 2}}\n"));
+
+        assertEquals(documents.size(), 2);
+        assertEquals(documents.get(0).getDocument("a").getInt32("b").getValue(), 1);
+    }
+
+    @Test
+    public void readIgnoresBracesInStrings() throws Exception {
+        List<RawBsonDocument> documents = FixtureReader.read(new StringReader("{ \"a\": \"}{\\\"\" }\n{ 'b': '{' }"));
+
+        assertEquals(documents.size(), 2);
+        assertEquals(documents.get(0).getString("a").getValue(), "}{\"");
+        assertEquals(documents.get(1).getString("b").getValue(), "{");
+    }
+
+    @Test
+    public void readThrowsExceptionForUnterminatedDocuments() {
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class,
+                () -> FixtureReader.read(new StringReader("{ \"a\": 1 }\n{ \"a\": 1")));
+
+        assertEquals(ex.getMessage(), "Failed to read JSON document at offset 19.");
+    }
+
+    @Test
+    public void readThrowsExceptionForUnterminatedStrings() {
+        assertThrows(MongoDBTestException.class, () -> FixtureReader.read(new StringReader("{ \"a\": \"} ")));
+    }
+
+    @Test
+    public void readThrowsExceptionForTextOutsideOfDocuments() {
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class,
+                () -> FixtureReader.read(new StringReader("[{ \"a\": 1 }, a: 2 }]")));
+
+        assertEquals(ex.getMessage(), "Failed to read JSON document at offset 13.");
+    }
+
+    @Test
+    public void readThrowsExceptionForUnbalancedBraces() {
+        assertThrows(MongoDBTestException.class, () -> FixtureReader.read(new StringReader("{ \"a\": 1 }}")));
+    }
+
+    @Test
+    public void readParsesDocumentsSpanningSeveralBuffers() throws Exception {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            json.append("{ \"index\": ").append(i).append(", \"text\": \"some text { with braces }\" }\n");
+        }
+
+        List<RawBsonDocument> documents = FixtureReader.read(new StringReader(json.toString()));
+
+        assertEquals(documents.size(), 2000);
+        assertEquals(documents.get(1999).getInt32("index").getValue(), 1999);
+    }
+
+    @Test
+    public void readSlicesBinaryBsonIntoDocuments() throws Exception {
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer document = RawBsonDocument.parse("{ \"index\": " + i + " }").getByteBuffer().asNIO();
+            byte[] bytes = new byte[document.remaining()];
+            document.get(bytes);
+            dump.write(bytes);
+        }
+
+        List<RawBsonDocument> documents = FixtureReader.read(new ByteArrayResource(dump.toByteArray()));
+
+        assertEquals(documents.size(), 3);
+        assertEquals(documents.get(2).getInt32("index").getValue(), 2);
+    }
+
+    @Test
+    public void readDetectsJsonResources() throws Exception {
+        List<RawBsonDocument> documents = FixtureReader.read(new ByteArrayResource("\n{ \"a\": 1 }".getBytes(UTF_8)));
+
+        assertEquals(documents.size(), 1);
+    }
+
+    @Test
+    public void sliceThrowsExceptionForTruncatedDocuments() {
+        byte[] bytes = {16, 0, 0, 0, 0};
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> FixtureReader.slice(bytes));
+
+        assertEquals(ex.getMessage(), "Failed to read BSON document at offset 0.");
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FixtureSnapshotTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+    private final MongoClient client = mock(MongoClient.class);
+    private final Map<String, String> hashes = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(appCtx.getEnvironment()).thenReturn(new MockEnvironment());
+        when(appCtx.getBeanProvider(DatabasePool.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+
+        MongoIterable<String> names = mock(MongoIterable.class);
+        when(client.listDatabaseNames()).thenReturn(names);
+        when(names.spliterator()).thenAnswer((invocation) -> Arrays.asList("admin", "default_db", "other_db").spliterator());
+        hashes.put("default_db", "c2f6a7b7e1d2c4b5a1e0f9d8c7b6a5f4");
+        hashes.put("other_db", "0f1e2d3c4b5a69788796a5b4c3d2e1f0");
+        database("default_db");
+        database("other_db");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        FixtureSnapshot.invalidate();
+    }
+
+    @Test
+    public void unchangedDatabasesMatchTheRecordedSnapshot() {
+        FixtureSnapshot.record(ctx, "person");
+
+        assertTrue(FixtureSnapshot.isUnchanged(ctx, "person"));
+    }
+
+    @Test
+    public void writesOfTheTestChangeTheSnapshot() {
+        FixtureSnapshot.record(ctx, "person");
+        hashes.put("other_db", "99999999999999999999999999999999");
+
+        assertFalse(FixtureSnapshot.isUnchanged(ctx, "person"));
+    }
+
+    @Test
+    public void otherFixturesNeverMatchTheSnapshot() {
+        FixtureSnapshot.record(ctx, "person");
+
+        assertFalse(FixtureSnapshot.isUnchanged(ctx, "product"));
+    }
+
+    @Test
+    public void invalidatedSnapshotsNeverMatch() {
+        FixtureSnapshot.record(ctx, "person");
+        FixtureSnapshot.invalidate();
+
+        assertFalse(FixtureSnapshot.isUnchanged(ctx, "person"));
+    }
+
+    @Test
+    public void snapshotsOfAnotherClientNeverMatch() {
+        FixtureSnapshot.record(ctx, "person");
+        when(appCtx.getBean(MongoClient.class)).thenReturn(mock(MongoClient.class));
+
+        assertFalse(FixtureSnapshot.isUnchanged(ctx, "person"));
+    }
+
+    @Test
+    public void excludedDatabasesAreNotHashed() {
+        FixtureSnapshot.record(ctx, "person");
+
+        verify(client, never()).getDatabase("admin");
+    }
+
+    private void database(String dbName) {
+        MongoDatabase db = mock(MongoDatabase.class);
+        when(client.getDatabase(dbName)).thenReturn(db);
+        when(db.runCommand(any(Bson.class))).thenAnswer((invocation) -> new Document("md5", hashes.get(dbName)));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FixtureTemplatesTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+    private final MongoClient client = mock(MongoClient.class);
+    private final MongoDatabase templates = mock(MongoDatabase.class);
+    private MongoCollection<RawBsonDocument> staging;
+    private List<String> collectionNames = Collections.emptyList();
+    private Path file;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(appCtx.getEnvironment()).thenReturn(new MockEnvironment());
+        when(appCtx.getBeanProvider(NamespaceTracker.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+
+        ListCollectionsIterable<Document> collections = mock(ListCollectionsIterable.class);
+        when(templates.getName()).thenReturn("spring_mongodb_test_templates");
+        when(templates.listCollections()).thenReturn(collections);
+        when(collections.filter(any(Bson.class))).thenReturn(collections);
+        MongoIterable<String> names = mock(MongoIterable.class);
+        when(templates.listCollectionNames()).thenReturn(names);
+        when(names.iterator()).thenAnswer((invocation) -> iterator(collectionNames));
+        staging = mock(MongoCollection.class);
+        when(templates.getCollection(startsWith("person.template.staging-"), eq(RawBsonDocument.class))).thenReturn(staging);
+
+        file = Files.createTempFile("people", ".json");
+        Files.write(file, "[{\"_id\": 1, \"name\": \"Jimi\"}]".getBytes(StandardCharsets.UTF_8));
+        when(appCtx.getResource(anyString())).thenReturn(new FileSystemResource(file.toFile()));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void prepareRenamesTheCompleteTemplate() throws Exception {
+        FixtureTemplates.prepare(ctx, templates, "person.template", Collections.singletonList(people()));
+
+        verify(staging).renameCollection(eq(new MongoNamespace("spring_mongodb_test_templates", "person.template")),
+                any(RenameCollectionOptions.class));
+        verify(staging, never()).drop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void prepareDropsTheStagingCollectionIfSeedingFails() throws Exception {
+        when(staging.insertMany(any())).thenThrow(new MongoException("duplicate key"));
+
+        assertThrows(MongoException.class, () -> FixtureTemplates.prepare(ctx, templates, "person.template",
+                Collections.singletonList(people())));
+
+        verify(staging).drop();
+        verify(staging, never()).renameCollection(any(MongoNamespace.class), any(RenameCollectionOptions.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void prepareDropsThePreviousVersionsOfTheTemplate() throws Exception {
+        MongoCollection<Document> previous = mock(MongoCollection.class);
+        MongoCollection<Document> abandoned = mock(MongoCollection.class);
+        MongoCollection<Document> other = mock(MongoCollection.class);
+        when(templates.getCollection("person.files.v1")).thenReturn(previous);
+        when(templates.getCollection("person.files.v1.staging-60327c7f9189342c201e0e11")).thenReturn(abandoned);
+        when(templates.getCollection("person.other.v1")).thenReturn(other);
+        when(templates.getCollection(startsWith("person.files.v2.staging-"), eq(RawBsonDocument.class))).thenReturn(staging);
+        collectionNames = Arrays.asList("person.files.v1", "person.files.v1.staging-60327c7f9189342c201e0e11",
+                "person.files.v2", "person.other.v1");
+
+        FixtureTemplates.prepare(ctx, templates, "person.files.v2", Collections.singletonList(people()));
+
+        verify(previous).drop();
+        verify(abandoned).drop();
+        verify(other, never()).drop();
+        verify(templates, never()).getCollection("person.files.v2");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCursor<String> iterator(List<String> names) {
+        Iterator<String> iterator = names.iterator();
+        MongoCursor<String> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer((invocation) -> iterator.hasNext());
+        when(cursor.next()).thenAnswer((invocation) -> iterator.next());
+        return cursor;
+    }
+
+    private Doc people() throws Exception {
+        return getClass().getDeclaredMethod("peopleFixture").getAnnotation(Doc.class);
+    }
+
+    @Doc(collection = "person", files = "/people.json")
+    private void peopleFixture() {
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import org.bson.BsonObjectId;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GridFsAnnotationHandlerTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+    private final Environment env = mock(Environment.class);
+    private final MongoClient client = mock(MongoClient.class);
+    private final MongoDatabase db = mock(MongoDatabase.class);
+    private final List<String> uploaded = Collections.synchronizedList(new ArrayList<>());
+    private MongoCollection<RawBsonDocument> chunks;
+    private MongoCollection<Document> files;
+    private Path file;
+    private Path directory;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(appCtx.getEnvironment()).thenReturn(env);
+        when(env.getProperty("spring-mongodb-test.gridfs.chunk-size", Integer.class, 255 * 1024)).thenReturn(255 * 1024);
+        file = Files.createTempFile("upload", ".pdf");
+        Files.write(file, new byte[10]);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        if (directory != null) FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Test
+    public void chunkSizeDefaultsToTheDriverDefault() throws Exception {
+        assertEquals(GridFsAnnotationHandler.chunkSize(ctx, annotation("defaultChunkSize")), 261120);
+    }
+
+    @Test
+    public void chunkSizeIsTakenFromTheProperty() throws Exception {
+        when(env.getProperty("spring-mongodb-test.gridfs.chunk-size", Integer.class, 255 * 1024)).thenReturn(1024);
+
+        assertEquals(GridFsAnnotationHandler.chunkSize(ctx, annotation("defaultChunkSize")), 1024);
+    }
+
+    @Test
+    public void chunkSizeOfTheAnnotationOverridesTheProperty() throws Exception {
+        when(env.getProperty("spring-mongodb-test.gridfs.chunk-size", Integer.class, 255 * 1024)).thenReturn(1024);
+
+        assertEquals(GridFsAnnotationHandler.chunkSize(ctx, annotation("customChunkSize")), 4);
+    }
+
+    @Test
+    public void uploadAbortsPartiallyUploadedFiles() throws Exception {
+        GridFSBucket bucket = mock(GridFSBucket.class);
+        GridFSUploadStream upload = mock(GridFSUploadStream.class);
+        when(bucket.openUploadStream(any(BsonValue.class), anyString(), any(GridFSUploadOptions.class))).thenReturn(upload);
+        doThrow(new MongoException("write failed")).when(upload).write(any(byte[].class), eq(0), anyInt());
+
+        assertThrows(MongoException.class, () -> GridFsAnnotationHandler.upload(bucket, new FileSystemResource(file.toFile()),
+                new BsonObjectId(), new GridFSUploadOptions().chunkSizeBytes(4)));
+
+        verify(upload).abort();
+        verify(upload, never()).close();
+    }
+
+    @Test
+    public void uploadWritesTheFileInChunks() throws Exception {
+        GridFSBucket bucket = mock(GridFSBucket.class);
+        GridFSUploadStream upload = mock(GridFSUploadStream.class);
+        when(bucket.openUploadStream(any(BsonValue.class), anyString(), any(GridFSUploadOptions.class))).thenReturn(upload);
+
+        GridFsAnnotationHandler.upload(bucket, new FileSystemResource(file.toFile()), new BsonObjectId(),
+                new GridFSUploadOptions().chunkSizeBytes(4));
+
+        verify(upload, times(2)).write(any(byte[].class), eq(0), eq(4));
+        verify(upload).write(any(byte[].class), eq(0), eq(2));
+        verify(upload).close();
+    }
+
+    @Test
+    public void readChunksReadsTheStreamInBatches() throws Exception {
+        try (InputStream stream = new ByteArrayInputStream(new byte[10])) {
+            List<RawBsonDocument> first = GridFsAnnotationHandler.readChunks(stream, 0, 2, 4);
+            List<RawBsonDocument> second = GridFsAnnotationHandler.readChunks(stream, 2, 2, 4);
+            List<RawBsonDocument> third = GridFsAnnotationHandler.readChunks(stream, 3, 2, 4);
+
+            assertEquals(first.size(), 2);
+            assertEquals(second.size(), 1);
+            assertEquals(second.get(0).getInt32("n").getValue(), 2);
+            assertEquals(second.get(0).getBinary("data").getData().length, 2);
+            assertTrue(third.isEmpty());
+        }
+    }
+
+    @Test
+    public void filesOfDifferentBucketsAreUploadedConcurrently() throws Exception {
+        seeding(2);
+        CountDownLatch bothUploading = new CountDownLatch(2);
+        when(chunks.insertMany(anyList())).thenAnswer((invocation) -> {
+            bothUploading.countDown();
+            // an upload waits in vain for the other one, unless they run at the same time
+            if (!bothUploading.await(5, SECONDS)) throw new AssertionError("The files were uploaded one after another.");
+            return null;
+        });
+
+        new GridFsAnnotationHandler().runScripts(ctx, Arrays.asList(annotation("firstFile"), annotation("otherBucket")));
+
+        assertEquals(uploaded.stream().sorted().collect(Collectors.toList()), Arrays.asList("a.pdf", "c.pdf"));
+    }
+
+    @Test
+    public void filesWithTheSameIdAreUploadedInOrderOfDeclaration() throws Exception {
+        seeding(3);
+        when(files.insertOne(any(Document.class))).thenAnswer((invocation) -> {
+            String filename = ((Document) invocation.getArguments()[0]).getString("filename");
+            // a concurrent upload of the second file would overtake the first one
+            if ("a.pdf".equals(filename)) Thread.sleep(200);
+            uploaded.add(filename);
+            return null;
+        });
+
+        new GridFsAnnotationHandler().runScripts(ctx, Arrays.asList(annotation("firstFile"), annotation("otherBucket"),
+                annotation("sameIdAsFirstFile")));
+
+        assertEquals(uploaded.stream().filter((name) -> !"c.pdf".equals(name)).collect(Collectors.toList()),
+                Arrays.asList("a.pdf", "b.pdf"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedUploadsAreReportedWithTheirFile() throws Exception {
+        seeding(2);
+        BsonValue broken = GridFsAnnotationHandler.id(annotation("otherBucket"));
+        when(chunks.insertMany(anyList())).thenAnswer((invocation) -> {
+            List<RawBsonDocument> documents = (List<RawBsonDocument>) invocation.getArguments()[0];
+            if (documents.get(0).get("files_id").equals(broken)) throw new MongoException("write failed");
+            return null;
+        });
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> new GridFsAnnotationHandler()
+                .runScripts(ctx, Arrays.asList(annotation("firstFile"), annotation("otherBucket"))));
+
+        assertTrue(ex.getMessage().contains("/files/c.pdf"));
+        assertFalse(ex.getMessage().contains("/files/a.pdf"));
+        assertTrue(ex.getCause() instanceof MongoException);
+        // the broken file never becomes visible without its chunks, while the other one is complete
+        ArgumentCaptor<Document> filesDocuments = ArgumentCaptor.forClass(Document.class);
+        verify(files, times(1)).insertOne(filesDocuments.capture());
+        assertEquals(filesDocuments.getValue().getString("filename"), "a.pdf");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void seeding(int parallelism) throws Exception {
+        directory = Files.createTempDirectory("gridfs");
+        for (String name : Arrays.asList("a.pdf", "b.pdf", "c.pdf")) {
+            Files.write(directory.resolve(name), new byte[10]);
+        }
+        when(appCtx.getEnvironment()).thenReturn(new MockEnvironment()
+                .withProperty("spring.data.mongodb.database", "default_db")
+                .withProperty("spring-mongodb-test.seeding.parallelism", String.valueOf(parallelism)));
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+        when(appCtx.getBeanProvider(NamespaceTracker.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBeanProvider(DatabasePool.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getResource(anyString())).thenAnswer((invocation) -> {
+            String location = (String) invocation.getArguments()[0];
+            return new FileSystemResource(directory.resolve(location.substring(location.lastIndexOf('/') + 1)).toFile());
+        });
+
+        when(client.getDatabase("default_db")).thenReturn(db);
+        chunks = mock(MongoCollection.class);
+        files = mock(MongoCollection.class);
+        when(db.getName()).thenReturn("default_db");
+        when(db.getCollection(anyString(), eq(RawBsonDocument.class))).thenReturn(chunks);
+        when(db.getCollection(anyString())).thenReturn(files);
+        when(files.insertOne(any(Document.class))).thenAnswer((invocation) -> {
+            uploaded.add(((Document) invocation.getArguments()[0]).getString("filename"));
+            return null;
+        });
+    }
+
+    private GridFsFile annotation(String method) throws Exception {
+        return getClass().getDeclaredMethod(method).getAnnotation(GridFsFile.class);
+    }
+
+    @GridFsFile(id = "60327cc5dbc0a320d7544ae3", filePath = "/files/test.pdf")
+    private void defaultChunkSize() {
+    }
+
+    @GridFsFile(id = "60327cc5dbc0a320d7544ae3", filePath = "/files/test.pdf", chunkSize = 4)
+    private void customChunkSize() {
+    }
+
+    @GridFsFile(id = "60327cc5dbc0a320d7544ae3", filePath = "/files/a.pdf", chunkSize = 4)
+    private void firstFile() {
+    }
+
+    @GridFsFile(id = "60327cc5dbc0a320d7544ae3", filePath = "/files/b.pdf", chunkSize = 4)
+    private void sameIdAsFirstFile() {
+    }
+
+    @GridFsFile(id = "60327c7f9189342c201e0e11", filePath = "/files/c.pdf", bucket = "images", chunkSize = 4)
+    private void otherBucket() {
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.ListIndexesIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.result.DeleteResult;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestContext;
+
+import java.util.ArrayList;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoDBAnnotationHandlerTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final MongoDatabase db = mock(MongoDatabase.class);
+    private ListCollectionsIterable<Document> collections;
+    private MongoCollection<Document> collection;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        collections = mock(ListCollectionsIterable.class);
+        when(db.listCollections()).thenReturn(collections);
+        when(collections.filter(any(Bson.class))).thenReturn(collections);
+        when(collections.first()).thenReturn(new Document("name", "person").append("type", "collection"));
+        collection = mock(MongoCollection.class);
+        when(db.getCollection("person")).thenReturn(collection);
+        ListIndexesIterable<Document> indexes = mock(ListIndexesIterable.class);
+        when(collection.listIndexes()).thenReturn(indexes);
+        when(indexes.into(any())).thenReturn(new ArrayList<>());
+        when(collection.deleteMany(any(Bson.class))).thenReturn(DeleteResult.acknowledged(1));
+    }
+
+    @Test
+    public void collectionsBelowTheThresholdAreDeletedFrom() {
+        when(collection.estimatedDocumentCount()).thenReturn(999L);
+
+        clean(CleanupStrategy.DROP_AND_RESTORE, 1000);
+
+        verify(collection).deleteMany(any(Bson.class));
+        verify(collection, never()).drop();
+    }
+
+    @Test
+    public void collectionsAtTheThresholdAreDroppedAndRestored() {
+        when(collection.estimatedDocumentCount()).thenReturn(1000L);
+
+        clean(CleanupStrategy.DROP_AND_RESTORE, 1000);
+
+        verify(collection).drop();
+        verify(db).runCommand(new Document("create", "person"));
+        verify(collection, never()).deleteMany(any(Bson.class));
+    }
+
+    @Test
+    public void emptyCollectionsAreNeverDropped() {
+        when(collection.estimatedDocumentCount()).thenReturn(0L);
+
+        clean(CleanupStrategy.DROP_AND_RESTORE, 0);
+
+        verify(collection, never()).drop();
+    }
+
+    @Test
+    public void viewsAreNeverDropped() {
+        when(collections.first()).thenReturn(new Document("name", "person").append("type", "view"));
+
+        clean(CleanupStrategy.DROP_AND_RESTORE, 1);
+
+        verify(collection, never()).estimatedDocumentCount();
+        verify(collection, never()).drop();
+    }
+
+    @Test
+    public void theDeleteStrategyNeverDrops() {
+        when(collection.estimatedDocumentCount()).thenReturn(5000L);
+
+        clean(CleanupStrategy.DELETE, 1000);
+
+        verify(collection).deleteMany(any(Bson.class));
+        verify(collection, never()).drop();
+        verify(db, never()).listCollections();
+    }
+
+    private void clean(CleanupStrategy strategy, long dropThreshold) {
+        try (Trace trace = Trace.start(ctx, "clean collection")) {
+            MongoDBAnnotationHandler.clean(db, "person", strategy, dropThreshold, trace);
+        }
+    }
+}
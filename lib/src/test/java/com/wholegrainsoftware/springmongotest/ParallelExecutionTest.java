@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.wholegrainsoftware.springmongotest.ParallelExecution.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ParallelExecutionTest {
+
+    @Test
+    public void invokeAllRunsEveryTask() {
+        AtomicInteger count = new AtomicInteger();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new Task("task" + i, count::incrementAndGet));
+        }
+
+        new ParallelExecution(4).invokeAll("run", tasks);
+
+        assertEquals(count.get(), 50);
+    }
+
+    @Test
+    public void invokeAllRunsTasksConcurrently() {
+        CountDownLatch started = new CountDownLatch(2);
+        Runnable awaitOther = () -> {
+            started.countDown();
+            try {
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task("first", awaitOther));
+        tasks.add(new Task("second", awaitOther));
+
+        assertDoesNotThrow(() -> new ParallelExecution(2).invokeAll("run", tasks));
+    }
+
+    @Test
+    public void invokeAllReportsFailuresInOrderOfTasks() {
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalStateException second = new IllegalStateException("second");
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task("db.a", () -> {
+        }));
+        tasks.add(new Task("db.b", () -> {
+            throw first;
+        }));
+        tasks.add(new Task("db.c", () -> {
+            throw second;
+        }));
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> new ParallelExecution(3).invokeAll("clean", tasks));
+
+        assertEquals(ex.getMessage(), "Failed to clean db.b, db.c.");
+        assertEquals(ex.getCause(), first);
+        assertArrayEquals(ex.getSuppressed(), new Throwable[]{second});
+    }
+
+    @Test
+    public void invokeAllRethrowsErrorsAfterEveryTaskFinished() {
+        AssertionError error = new AssertionError("error");
+        IllegalStateException failure = new IllegalStateException("failure");
+        AtomicInteger count = new AtomicInteger();
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task("db.a", () -> {
+            throw error;
+        }));
+        tasks.add(new Task("db.b", () -> {
+            throw failure;
+        }));
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new Task("task" + i, count::incrementAndGet));
+        }
+
+        AssertionError ex = assertThrows(AssertionError.class, () -> new ParallelExecution(3).invokeAll("clean", tasks));
+
+        assertSame(ex, error);
+        assertArrayEquals(ex.getSuppressed(), new Throwable[]{failure});
+        assertEquals(count.get(), 10);
+    }
+
+    @Test
+    public void virtualThreadsRunTasksConcurrently() {
+        ParallelExecution execution = ParallelExecution.virtualThreads(100);
+        assumeTrue(execution != null, "virtual threads require Java 21");
+        CountDownLatch started = new CountDownLatch(100);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Task("task" + i, () -> {
+                started.countDown();
+                try {
+                    assertTrue(started.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }));
+        }
+
+        assertDoesNotThrow(() -> execution.invokeAll("run", tasks));
+    }
+
+    @Test
+    public void virtualThreadsAreLimitedByParallelism() {
+        ParallelExecution execution = ParallelExecution.virtualThreads(2);
+        assumeTrue(execution != null, "virtual threads require Java 21");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new Task("task" + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        execution.invokeAll("run", tasks);
+
+        assertTrue(maxRunning.get() <= 2);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReactiveGeneratedDocAnnotationHandlerTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+    private final MockEnvironment env = new MockEnvironment().withProperty("spring.data.mongodb.database", "my_database");
+    private final MongoClient client = mock(MongoClient.class);
+    private final MongoDatabase db = mock(MongoDatabase.class);
+    private final Subscriptions subscriptions = new Subscriptions();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(ctx.getAttribute(Subscriptions.ATTRIBUTE)).thenReturn(subscriptions);
+        when(appCtx.getEnvironment()).thenReturn(env);
+        when(appCtx.getBeanProvider(NamespaceTracker.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBeanProvider(DatabasePool.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+        when(client.getDatabase("my_database")).thenReturn(db);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void runScriptInsertsTheGeneratedDocumentsInBatches() throws Exception {
+        env.setProperty("spring-mongodb-test.seeding.parallelism", "1");
+        MongoCollection<BsonDocument> events = mock(MongoCollection.class);
+        when(db.getCollection("event", BsonDocument.class)).thenReturn(events);
+        List<Integer> batches = new ArrayList<>();
+        when(events.insertMany(any(), any(InsertManyOptions.class))).thenAnswer((invocation) -> {
+            batches.add(((List<BsonDocument>) invocation.getArguments()[0]).size());
+            return completed(mock(InsertManyResult.class));
+        });
+
+        new ReactiveGeneratedDocAnnotationHandler().runScript(ctx, getClass().getDeclaredMethod("events").getAnnotation(GeneratedDoc.class));
+        subscriptions.await("insert");
+
+        assertEquals(batches, Arrays.asList(1000, 1000, 500));
+    }
+
+    @GeneratedDoc(collection = "event", template = "{ _id: '{{objectId}}', n: '{{sequence:10}}' }", count = 2500)
+    private void events() {
+    }
+
+    private static <T> Publisher<T> completed(T item) {
+        return (subscriber) -> {
+            subscriber.onSubscribe(new NoopSubscription());
+            subscriber.onNext(item);
+            subscriber.onComplete();
+        };
+    }
+
+    private static class NoopSubscription implements Subscription {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.wholegrainsoftware.springmongotest.ReactiveGridFsAnnotationHandler.Upload;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveGridFsAnnotationHandlerTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+    private final MockEnvironment env = new MockEnvironment().withProperty("spring.data.mongodb.database", "my_database");
+    private final MongoClient client = mock(MongoClient.class);
+    private final MongoDatabase db = mock(MongoDatabase.class);
+    private final Subscriptions subscriptions = new Subscriptions();
+    private Path file;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(ctx.getAttribute(Subscriptions.ATTRIBUTE)).thenReturn(subscriptions);
+        when(appCtx.getEnvironment()).thenReturn(env);
+        when(appCtx.getBeanProvider(NamespaceTracker.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBeanProvider(DatabasePool.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+        when(client.getDatabase("my_database")).thenReturn(db);
+        file = Files.createTempFile("upload", ".pdf");
+        Files.write(file, new byte[10]);
+        when(appCtx.getResource(anyString())).thenReturn(new FileSystemResource(file.toFile()));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void filesAboveTheCacheLimitAreReadInChunks() throws Exception {
+        env.setProperty("spring-mongodb-test.fixture-cache.max-bytes", "0");
+        MongoCollection<Document> files = mock(MongoCollection.class);
+        MongoCollection<Document> chunkIndex = mock(MongoCollection.class);
+        MongoCollection<RawBsonDocument> chunks = mock(MongoCollection.class);
+        when(db.getCollection("fs.files")).thenReturn(files);
+        when(db.getCollection("fs.chunks")).thenReturn(chunkIndex);
+        when(db.getCollection("fs.chunks", RawBsonDocument.class)).thenReturn(chunks);
+        when(files.createIndex(any(Bson.class))).thenReturn(completed("filename_1_uploadDate_1"));
+        when(chunkIndex.createIndex(any(Bson.class), any(IndexOptions.class))).thenReturn(completed("files_id_1_n_1"));
+        List<RawBsonDocument> inserted = new ArrayList<>();
+        when(chunks.insertMany(any())).thenAnswer((invocation) -> {
+            inserted.addAll((List<RawBsonDocument>) invocation.getArguments()[0]);
+            return completed(mock(InsertManyResult.class));
+        });
+        when(files.insertOne(any(Document.class))).thenReturn(completed(mock(InsertOneResult.class)));
+
+        new ReactiveGridFsAnnotationHandler().runScript(ctx, annotation());
+        subscriptions.await("upload");
+
+        assertEquals(inserted.size(), 3);
+        assertEquals(inserted.get(2).getInt32("n").getValue(), 2);
+        assertEquals(inserted.get(2).getBinary("data").getData().length, 2);
+        verify(files).insertOne(any(Document.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void filesDocumentIsInsertedOnceEveryChunkIsInserted() {
+        MongoCollection<Document> files = mock(MongoCollection.class);
+        when(files.insertOne(any(Document.class))).thenReturn(completed(mock(InsertOneResult.class)));
+        Deferred<InsertManyResult> first = new Deferred<>();
+        Deferred<InsertManyResult> second = new Deferred<>();
+        Upload upload = new Upload(subscriptions, "my_database.fs/test.pdf", files);
+
+        upload.insert(first, () -> {
+        });
+        upload.insert(second, () -> {
+        });
+        upload.read(new Document("_id", 1));
+        first.complete(mock(InsertManyResult.class));
+        verify(files, never()).insertOne(any(Document.class));
+        second.complete(mock(InsertManyResult.class));
+        subscriptions.await("upload");
+
+        verify(files).insertOne(new Document("_id", 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void filesDocumentIsNotInsertedIfAChunkFailed() {
+        MongoCollection<Document> files = mock(MongoCollection.class);
+        Deferred<InsertManyResult> chunks = new Deferred<>();
+        Upload upload = new Upload(subscriptions, "my_database.fs/test.pdf", files);
+
+        upload.insert(chunks, () -> {
+        });
+        upload.read(new Document("_id", 1));
+        chunks.fail(new IllegalStateException("duplicate key"));
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> subscriptions.await("upload"));
+
+        assertEquals(ex.getMessage(), "Failed to upload my_database.fs/test.pdf.");
+        verify(files, never()).insertOne(any(Document.class));
+    }
+
+    private GridFsFile annotation() throws Exception {
+        return getClass().getDeclaredMethod("smallChunks").getAnnotation(GridFsFile.class);
+    }
+
+    @GridFsFile(id = "60327cc5dbc0a320d7544ae3", filePath = "/files/test.pdf", chunkSize = 4)
+    private void smallChunks() {
+    }
+
+    private static <T> Publisher<T> completed(T item) {
+        return (subscriber) -> {
+            subscriber.onSubscribe(new NoopSubscription());
+            subscriber.onNext(item);
+            subscriber.onComplete();
+        };
+    }
+
+    private static class Deferred<T> implements Publisher<T> {
+        private final AtomicReference<Subscriber<? super T>> subscriber = new AtomicReference<>();
+
+        @Override
+        public void subscribe(Subscriber<? super T> subscriber) {
+            this.subscriber.set(subscriber);
+            subscriber.onSubscribe(new NoopSubscription());
+        }
+
+        void complete(T item) {
+            subscriber.get().onNext(item);
+            subscriber.get().onComplete();
+        }
+
+        void fail(RuntimeException ex) {
+            subscriber.get().onError(ex);
+        }
+    }
+
+    private static class NoopSubscription implements Subscription {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveMongoDBAnnotationHandlerTest {
+    private final TestContext ctx = mock(TestContext.class);
+    private final ApplicationContext appCtx = mock(ApplicationContext.class);
+    private final MockEnvironment env = new MockEnvironment().withProperty("spring.data.mongodb.database", "my_database");
+    private final MongoClient client = mock(MongoClient.class);
+    private final MongoDatabase db = mock(MongoDatabase.class);
+    private final Subscriptions subscriptions = new Subscriptions();
+    private Path file;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        when(ctx.getApplicationContext()).thenReturn(appCtx);
+        when(ctx.getAttribute(Subscriptions.ATTRIBUTE)).thenReturn(subscriptions);
+        when(appCtx.getEnvironment()).thenReturn(env);
+        when(appCtx.getBeanProvider(NamespaceTracker.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBeanProvider(DatabasePool.class)).thenReturn(mock(ObjectProvider.class));
+        when(appCtx.getBean(MongoClient.class)).thenReturn(client);
+        when(client.getDatabase("my_database")).thenReturn(db);
+        file = Files.createTempFile("people", ".json");
+        Files.write(file, "[{\"name\": \"Jimi\"}, {\"_id\": 2, \"name\": \"Joan\"}]".getBytes(StandardCharsets.UTF_8));
+        when(appCtx.getResource(anyString())).thenReturn(new FileSystemResource(file.toFile()));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void runScriptInsertsTheDocumentsOfTheFixtures() throws Exception {
+        MongoCollection<RawBsonDocument> people = mock(MongoCollection.class);
+        when(db.getCollection("person", RawBsonDocument.class)).thenReturn(people);
+        List<RawBsonDocument> inserted = new ArrayList<>();
+        when(people.insertMany(any())).thenAnswer((invocation) -> {
+            inserted.addAll((List<RawBsonDocument>) invocation.getArguments()[0]);
+            return completed(mock(InsertManyResult.class));
+        });
+
+        new ReactiveMongoDBAnnotationHandler().runScript(ctx, getClass().getDeclaredMethod("people").getAnnotation(Doc.class));
+        subscriptions.await("insert");
+
+        assertEquals(inserted.size(), 2);
+        assertTrue(inserted.get(0).containsKey("_id"));
+        assertEquals(inserted.get(1).getInt32("_id").getValue(), 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cleanupDeletesTrackedCollectionsButNoBuckets() {
+        MongoCollection<Document> people = mock(MongoCollection.class);
+        when(db.getCollection("person")).thenReturn(people);
+        when(people.deleteMany(any(Bson.class))).thenReturn(completed(DeleteResult.acknowledged(1)));
+
+        new ReactiveMongoDBAnnotationHandler().cleanup(ctx, CleanupScope.of(Arrays.asList(
+                new MongoNamespace("my_database", "person"), new MongoNamespace("my_database", "fs.files"))));
+
+        verify(people).deleteMany(new Document());
+        verify(db, never()).getCollection("fs.files");
+    }
+
+    @Doc(collection = "person", files = "/people.json")
+    private void people() {
+    }
+
+    private static <T> Publisher<T> completed(T item) {
+        return (subscriber) -> {
+            subscriber.onSubscribe(new NoopSubscription());
+            subscriber.onNext(item);
+            subscriber.onComplete();
+        };
+    }
+
+    private static class NoopSubscription implements Subscription {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
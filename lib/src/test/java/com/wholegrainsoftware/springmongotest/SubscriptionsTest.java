@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionsTest {
+
+    @Test
+    public void awaitWaitsForAllPublishers() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> items = new ArrayList<>();
+        try {
+            Subscriptions subscriptions = new Subscriptions();
+            subscriptions.subscribe("first", publisher(1, 2), items::add);
+            subscriptions.subscribe("second", (subscriber) -> executor.execute(() -> {
+                subscriber.onSubscribe(new NoopSubscription());
+                await(release);
+                subscriber.onNext(3);
+                subscriber.onComplete();
+            }), items::add);
+            release.countDown();
+
+            subscriptions.await("insert");
+
+            assertEquals(items, Arrays.asList(1, 2, 3));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void awaitReportsEveryFailedPublisher() {
+        Subscriptions subscriptions = new Subscriptions();
+        AtomicBoolean done = new AtomicBoolean();
+        subscriptions.subscribe("first", failing(new IllegalStateException("first failed")));
+        subscriptions.subscribe("second", publisher(1));
+        subscriptions.subscribe("third", failing(new IllegalArgumentException("third failed")), (item) -> {
+        }, () -> done.set(true));
+
+        MongoDBTestException ex = assertThrows(MongoDBTestException.class, () -> subscriptions.await("insert"));
+
+        assertEquals(ex.getMessage(), "Failed to insert first, third.");
+        assertEquals(ex.getCause().getMessage(), "first failed");
+        assertEquals(ex.getSuppressed()[0].getMessage(), "third failed");
+        assertTrue(done.get());
+    }
+
+    private static Publisher<Integer> publisher(Integer... items) {
+        return (subscriber) -> {
+            subscriber.onSubscribe(new NoopSubscription());
+            for (Integer item : items) {
+                subscriber.onNext(item);
+            }
+            subscriber.onComplete();
+        };
+    }
+
+    private static Publisher<Integer> failing(RuntimeException ex) {
+        return (subscriber) -> {
+            subscriber.onSubscribe(new NoopSubscription());
+            subscriber.onError(ex);
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class NoopSubscription implements Subscription {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
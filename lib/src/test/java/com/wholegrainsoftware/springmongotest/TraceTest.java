@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Wholegrain Software, Jimi Steidl <www.wholegrain-software.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wholegrainsoftware.springmongotest;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestContext;
+import org.springframework.util.ClassUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TraceTest {
+    private static final String EVENT = "com.wholegrainsoftware.springmongotest.Phase";
+
+    private final TestContext ctx = mock(TestContext.class);
+    private Path file;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        assumeTrue(ClassUtils.isPresent("jdk.jfr.Recording", getClass().getClassLoader()) && FlightRecorder.isAvailable());
+        when(ctx.getTestClass()).thenReturn((Class) TraceTest.class);
+        file = Files.createTempFile("trace", ".jfr");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (file != null) Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void phasesAreRecordedWithTheirNamespaceAndCounts() throws Exception {
+        when(ctx.getTestMethod()).thenReturn(getClass().getMethod("phasesAreRecordedWithTheirNamespaceAndCounts"));
+
+        List<RecordedEvent> events = record(() -> {
+            try (Trace trace = Trace.start(ctx, "insert documents").database("default_db").collection("person")) {
+                trace.documents(2).bytes(64).documents(1);
+            }
+        });
+
+        assertEquals(events.size(), 1);
+        RecordedEvent event = events.get(0);
+        assertEquals(event.getString("phase"), "insert documents");
+        assertEquals(event.getString("database"), "default_db");
+        assertEquals(event.getString("collection"), "person");
+        assertEquals(event.getClass("testClass").getName(), TraceTest.class.getName());
+        assertEquals(event.getString("testMethod"), "phasesAreRecordedWithTheirNamespaceAndCounts");
+        assertEquals(event.getLong("documentCount"), 3L);
+        assertEquals(event.getLong("byteCount"), 64L);
+    }
+
+    @Test
+    public void phasesWithoutANamespaceLeaveItEmpty() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            try (Trace ignored = Trace.start(ctx, "merge annotations")) {
+                // nothing to do
+            }
+        });
+
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getString("phase"), "merge annotations");
+        assertNull(events.get(0).getString("database"));
+        assertNull(events.get(0).getString("collection"));
+        assertNull(events.get(0).getString("testMethod"));
+    }
+
+    private List<RecordedEvent> record(Runnable phases) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT).withThreshold(Duration.ZERO);
+            recording.start();
+            phases.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter((event) -> EVENT.equals(event.getEventType().getName()))
+                .collect(Collectors.toList());
+    }
+}